@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -20,7 +21,40 @@ dependencies {
 }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("benchmark", "allocation")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the solver scaling benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging.showStandardStreams = true
+}
+
+tasks.register<Test>("allocationTest") {
+    description = "Checks the bytes allocated per solver iteration against the budgets in src/test/resources."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("allocation")
+    }
+    testLogging.showStandardStreams = true
+}
+
+// JMH benchmarks in src/jmh; run with ./gradlew jmh, or pass e.g. -PjmhIncludes=CfgBenchmark to select some
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes").toString()))
+    }
 }
 
 application {
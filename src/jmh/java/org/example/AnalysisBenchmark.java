@@ -0,0 +1,41 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Analyses whose lattice elements are bounded by the number of variables, on basic block CFGs of generated
+ *  programs. Each call creates the analysis, so indexing its universe is part of the measurement. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class AnalysisBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int statements;
+
+    ControlFlowGraph cfg;
+
+    @Setup
+    public void build() {
+        this.cfg = new BasicBlockCFGBuilder().buildCFG(ProgramGenerator.generate(42, this.statements));
+    }
+
+    @Benchmark
+    public void liveness(Blackhole blackhole) {
+        blackhole.consume(new LivenessAnalysis(this.cfg).analyze());
+    }
+
+    @Benchmark
+    public void sign(Blackhole blackhole) {
+        blackhole.consume(new SignAnalysis(this.cfg).analyze());
+    }
+
+    @Benchmark
+    public void informationFlow(Blackhole blackhole) {
+        blackhole.consume(new InformationFlowAnalysis(this.cfg).analyze());
+    }
+}
@@ -0,0 +1,35 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** CFG construction from generated programs of increasing size. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CfgBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int statements;
+
+    Block program;
+
+    @Setup
+    public void generate() {
+        this.program = ProgramGenerator.generate(42, this.statements);
+    }
+
+    @Benchmark
+    public void atomicCfg(Blackhole blackhole) {
+        blackhole.consume(new AtomicCFGBuilder().buildCFG(this.program));
+    }
+
+    @Benchmark
+    public void basicBlockCfg(Blackhole blackhole) {
+        blackhole.consume(new BasicBlockCFGBuilder().buildCFG(this.program));
+    }
+}
@@ -0,0 +1,42 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Analyses over sets of expressions or definitions, whose universe grows with the size of the program. Every
+ *  block holds a bit vector over the universe, so their memory grows quadratically, which is why the largest tier
+ *  is left out. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LargeUniverseAnalysisBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int statements;
+
+    ControlFlowGraph cfg;
+
+    @Setup
+    public void build() {
+        this.cfg = new BasicBlockCFGBuilder().buildCFG(ProgramGenerator.generate(42, this.statements));
+    }
+
+    @Benchmark
+    public void availableExpressions(Blackhole blackhole) {
+        blackhole.consume(new AvailableExpressionsAnalysis(this.cfg).analyze());
+    }
+
+    @Benchmark
+    public void veryBusyExpressions(Blackhole blackhole) {
+        blackhole.consume(new VeryBusyExpressionsAnalysis(this.cfg).analyze());
+    }
+
+    @Benchmark
+    public void reachingDefinitions(Blackhole blackhole) {
+        blackhole.consume(new ReachingDefinitionsAnalysis(this.cfg).analyze());
+    }
+}
@@ -0,0 +1,40 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** {@link ControlFlowGraph#simplify} on unsimplified atomic CFGs of generated programs.
+ *  Simplification modifies the CFG, so a fresh one is built (untimed) before every call. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SimplifyBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int statements;
+
+    Block program;
+    ControlFlowGraph cfg;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        this.program = ProgramGenerator.generate(42, this.statements);
+    }
+
+    @Setup(Level.Invocation)
+    public void build() {
+        var builder = new AtomicCFGBuilder();
+        builder.simplify = false;
+        this.cfg = builder.buildCFG(this.program);
+    }
+
+    @Benchmark
+    public void simplify(Blackhole blackhole) {
+        this.cfg.simplify();
+        blackhole.consume(this.cfg);
+    }
+}
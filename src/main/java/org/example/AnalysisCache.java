@@ -0,0 +1,266 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/** Cache of analysis solutions in front of {@link DataFlowAnalysis#analyze}.
+ *
+ *  Solutions are keyed by a SHA-256 hash of the structure of the CFG (see {@link CfgCodec#digest}), the class and
+ *  direction of the analysis, and the class and universe of its lattice, so structurally equal CFGs share entries
+ *  whatever objects they are made of. The hash is computed again on every lookup, since blocks can change without
+ *  the CFG knowing; walking the CFG costs far less than solving it. Entries are solutions encoded by
+ *  {@link SolutionCodec}: they are kept in memory up to {@link #maxMemoryBytes} and, if the cache has a directory,
+ *  written through to a file per entry, up to {@link #maxDiskBytes}. Both tiers evict their least recently used
+ *  entries first; on disk, recency is the modification time of the files, so it carries over to the next process
+ *  using the directory.
+ *
+ *  A hit decodes the solution over the lattice of the analysis asking for it, without creating its solver.
+ *  Only analyses whose lattices have an {@link ElementCodec} can be cached. */
+class AnalysisCache {
+    // changes whenever the key or the encodings change, so that older entries are never hit
+    static final int VERSION = 2;
+    static final String SUFFIX = ".sol";
+
+    final long maxMemoryBytes;
+
+    // null for a cache held in memory only
+    final Path directory;
+    final long maxDiskBytes;
+
+    long memoryHits;
+    long diskHits;
+    long misses;
+    long memoryEvictions;
+    long diskEvictions;
+
+    // encoded solutions, and the size of the files of the disk tier, by key, from least to most recently used
+    private final LinkedHashMap<String, byte[]> memory;
+    private final LinkedHashMap<String, Long> disk;
+    private long memoryBytes;
+    private long diskBytes;
+
+    AnalysisCache(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = null;
+        this.maxDiskBytes = 0;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.disk = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** create a cache that also keeps solutions in {@param directory}, which is created if needed, and pick up the
+     *  entries already there. */
+    AnalysisCache(long maxMemoryBytes, Path directory, long maxDiskBytes) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.disk = new LinkedHashMap<>(16, 0.75f, true);
+
+        Files.createDirectories(directory);
+        var files = new ArrayList<Path>();
+        try (var stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+
+        var modified = new HashMap<Path, FileTime>();
+        for (Path file : files) {
+            modified.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(modified::get));
+        for (Path file : files) {
+            var name = file.getFileName().toString();
+            long size = Files.size(file);
+            this.disk.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            this.diskBytes += size;
+        }
+        evictDisk();
+    }
+
+    /** return the solution of {@param analysis}, solving it with {@param strategy} on a miss. */
+    <T> HashMap<Integer, T> analyze(DataFlowAnalysis<T, ?> analysis, SolverStrategy strategy) {
+        var codec = ElementCodec.forLattice(analysis.lattice);
+        var key = key(analysis, codec);
+
+        var encoded = lookup(key);
+        if (encoded != null) {
+            try {
+                return new MappedSolution<>(encoded, codec).toMap();
+
+            } catch (RuntimeException e) {
+                // a damaged file is no different from a missing one
+                remove(key);
+            }
+        }
+
+        synchronized (this) {
+            this.misses += 1;
+        }
+        var solution = analysis.analyze(strategy);
+        store(key, SolutionCodec.encode(solution, codec));
+        return solution;
+    }
+
+    <T> HashMap<Integer, T> analyze(DataFlowAnalysis<T, ?> analysis) {
+        return analyze(analysis, SolverStrategy.REVERSE_POSTORDER);
+    }
+
+    /** return the key of the solution of {@param analysis}, whose elements are encoded by {@param codec}. */
+    static String key(DataFlowAnalysis<?, ?> analysis, ElementCodec<?> codec) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        var sink = new DigestOutputStream(OutputStream.nullOutputStream(), digest);
+        try (var out = new DataOutputStream(new BufferedOutputStream(sink, 1 << 16))) {
+            out.writeInt(VERSION);
+            out.write(CfgCodec.digest(analysis.cfg));
+            out.writeUTF(analysis.getClass().getName());
+            out.writeUTF(analysis.direction.name());
+            out.writeUTF(analysis.lattice.getClass().getName());
+            out.writeInt(codec.fingerprint());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** return the encoded solution with {@param key}, or null if neither tier has it. Entries found on disk are
+     *  moved into memory if they fit. */
+    private synchronized ByteBuffer lookup(String key) {
+        var bytes = this.memory.get(key);
+        if (bytes != null) {
+            this.memoryHits += 1;
+            return ByteBuffer.wrap(bytes);
+        }
+
+        if (this.disk.get(key) == null) {
+            return null;
+        }
+
+        try {
+            var file = file(key);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            var buffer = Binary.map(file);
+            this.diskHits += 1;
+            if (buffer.limit() > this.maxMemoryBytes) {
+                return buffer;
+            }
+
+            bytes = new byte[buffer.limit()];
+            buffer.get(bytes);
+            putMemory(key, bytes);
+            return ByteBuffer.wrap(bytes);
+
+        } catch (IOException e) {
+            // the file was removed under us, for instance by another process sharing the directory
+            this.diskBytes -= this.disk.remove(key);
+            return null;
+        }
+    }
+
+    private synchronized void store(String key, byte[] bytes) {
+        if (bytes.length <= this.maxMemoryBytes) {
+            putMemory(key, bytes);
+        }
+        if (this.directory == null || bytes.length > this.maxDiskBytes) {
+            return;
+        }
+
+        // write to a fresh file first, so that other processes never see a partial entry
+        try {
+            var temp = Files.createTempFile(this.directory, key, ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var previous = this.disk.put(key, (long) bytes.length);
+        this.diskBytes += bytes.length - (previous == null ? 0 : previous);
+        evictDisk();
+    }
+
+    private void putMemory(String key, byte[] bytes) {
+        var previous = this.memory.put(key, bytes);
+        this.memoryBytes += bytes.length - (previous == null ? 0 : previous.length);
+
+        var iter = this.memory.entrySet().iterator();
+        while (this.memoryBytes > this.maxMemoryBytes) {
+            var eldest = iter.next();
+            this.memoryBytes -= eldest.getValue().length;
+            this.memoryEvictions += 1;
+            iter.remove();
+        }
+    }
+
+    private void evictDisk() {
+        var iter = this.disk.entrySet().iterator();
+        while (this.diskBytes > this.maxDiskBytes) {
+            var eldest = iter.next();
+            try {
+                Files.deleteIfExists(file(eldest.getKey()));
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.diskBytes -= eldest.getValue();
+            this.diskEvictions += 1;
+            iter.remove();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        var bytes = this.memory.remove(key);
+        if (bytes != null) {
+            this.memoryBytes -= bytes.length;
+        }
+
+        var size = this.disk.remove(key);
+        if (size != null) {
+            this.diskBytes -= size;
+            try {
+                Files.deleteIfExists(file(key));
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return this.directory.resolve(key + SUFFIX);
+    }
+
+    /** number of bytes of the entries held in memory, and on disk. */
+    synchronized long memoryBytes() {
+        return this.memoryBytes;
+    }
+
+    synchronized long diskBytes() {
+        return this.diskBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d memory hits, %d disk hits, %d misses, %d memory evictions, %d disk evictions",
+            this.memoryHits, this.diskHits, this.misses, this.memoryEvictions, this.diskEvictions);
+    }
+}
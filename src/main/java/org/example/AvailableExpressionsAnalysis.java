@@ -1,56 +1,81 @@
 package org.example;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.*;
 
-/** Forward must-analysis that computes expressions that are *definitely* available at a program point. */
-class AvailableExpressionsAnalysis extends BasicDataFlowAnalysis<Set<Expression>, ReversePowersetLattice<Expression>> {
-    AvailableExpressionsAnalysis(ControlFlowGraph cfg) {
-        super(new ReversePowersetLattice<>(programExpressions(cfg)), cfg, DataFlowDirection.FORWARD);
+/** Complex expressions of an index that mention each variable, computed once per variable on demand.
+ *  They are sets over the index, so that gen/kill analyses can remove them a word at a time. */
+class ExpressionsByVariable {
+    ElementIndex<Expression> index;
+    HashMap<String, IndexedSet<Expression>> mentioning;
+
+    ExpressionsByVariable(ElementIndex<Expression> index) {
+        this.index = index;
+        this.mentioning = new HashMap<>();
     }
 
-    private static Set<Expression> programExpressions(ControlFlowGraph cfg) {
+    /** return the expressions in the index that mention {@param var}. */
+    IndexedSet<Expression> mentioning(String var) {
+        return this.mentioning.computeIfAbsent(var, v -> {
+            var res = new IndexedSet<>(this.index);
+            for (int i = 0; i < this.index.size(); i++) {
+                if (this.index.get(i).accept(new ExpressionVariables()).contains(v)) {
+                    res.bits.set(i);
+                }
+            }
+            return res;
+        });
+    }
+
+    /** return an index of the complex expressions of the statements and guards of {@param cfg}, numbered in the
+     *  order of their interned IDs. */
+    static ElementIndex<Expression> programExpressions(ControlFlowGraph cfg) {
         var exprs = new HashSet<Expression>();
         for (BasicBlock block : cfg.blockMap.values()) {
             for (var stmt : block.statements) {
                 exprs.addAll(stmt.accept(new ComplexExpressions()));
             }
+
+            if (block.jump instanceof ConditionalJump jump) {
+                exprs.addAll(jump.guard.accept(new ComplexExpressions()));
+            }
         }
 
-        return exprs;
+        var sorted = new ArrayList<>(exprs);
+        sorted.sort(Comparator.comparingInt(expr -> expr.id));
+        return new ElementIndex<>(sorted);
+    }
+}
+
+/** Forward must-analysis that computes expressions that are *definitely* available at a program point. */
+class AvailableExpressionsAnalysis extends GenKillAnalysis<Expression, ReverseBitSetPowersetLattice<Expression>> {
+    ExpressionsByVariable expressionsByVariable;
+
+    AvailableExpressionsAnalysis(ControlFlowGraph cfg) {
+        this(ExpressionsByVariable.programExpressions(cfg), cfg);
+    }
+
+    private AvailableExpressionsAnalysis(ElementIndex<Expression> index, ControlFlowGraph cfg) {
+        super(new ReverseBitSetPowersetLattice<>(index), index, cfg, DataFlowDirection.FORWARD);
+        this.expressionsByVariable = new ExpressionsByVariable(index);
     }
 
     @Override
-    Set<Expression> initial() {
+    IndexedSet<Expression> initial() {
         // no expressions are available at entry
-        return new HashSet<>();
+        return new IndexedSet<>(this.index);
     }
 
     @Override
-    Set<Expression> transfer(AtomicStatement statement, Set<Expression> input) {
+    Set<Expression> gen(BasicBlock block, AtomicStatement statement) {
         if (statement instanceof Assign assign) {
             // all complex expressions on the RHS of the assignment have been computed for the assignment,
-            // and thus are available after the assignment
-            var res = new HashSet<>(input);
-            res.addAll(assign.rhs.accept(new ComplexExpressions()));
-
-            // must remove all expressions that use the newly assigned variable, since those expressions are now stale
-            Iterator<Expression> iter = res.iterator();
-            while (iter.hasNext()) {
-                Expression expr = iter.next();
-
-                if (expr.accept(new ExpressionVariables()).contains(assign.var)) {
-                    iter.remove();
-                }
-            }
-
+            // and thus are available after the assignment, unless they use the newly assigned variable
+            var res = assign.rhs.accept(new ComplexExpressions());
+            res.removeAll(this.expressionsByVariable.mentioning(assign.var));
             return res;
 
         } else if (statement instanceof Output output) {
-            var res = new HashSet<>(input);
-            res.addAll(output.expr.accept(new ComplexExpressions()));
-            return res;
+            return output.expr.accept(new ComplexExpressions());
 
         } else {
             throw new RuntimeException("unreachable");
@@ -58,9 +83,18 @@ class AvailableExpressionsAnalysis extends BasicDataFlowAnalysis<Set<Expression>
     }
 
     @Override
-    Set<Expression> transfer(Expression guard, Set<Expression> input) {
-        var res = new HashSet<>(input);
-        res.addAll(guard.accept(new ComplexExpressions()));
-        return res;
+    Set<Expression> kill(BasicBlock block, AtomicStatement statement) {
+        if (statement instanceof Assign assign) {
+            // must remove all expressions that use the newly assigned variable, since those expressions are now stale
+            return this.expressionsByVariable.mentioning(assign.var);
+
+        } else {
+            return Set.of();
+        }
+    }
+
+    @Override
+    Set<Expression> gen(Expression guard) {
+        return guard.accept(new ComplexExpressions());
     }
 }
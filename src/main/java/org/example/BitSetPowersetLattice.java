@@ -0,0 +1,413 @@
+package org.example;
+
+import java.util.*;
+
+/** Assigns dense indices to the elements of a finite universe, e.g. the variables of a CFG. */
+class ElementIndex<T> {
+    private final HashMap<T, Integer> indices;
+    private final ArrayList<T> elements;
+
+    ElementIndex() {
+        this.indices = new HashMap<>();
+        this.elements = new ArrayList<>();
+    }
+
+    ElementIndex(Collection<T> elements) {
+        this();
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    /** add {@param element} if it does not have an index yet, and return its index. */
+    int add(T element) {
+        Integer index = this.indices.get(element);
+        if (index != null) {
+            return index;
+        }
+
+        this.indices.put(element, this.elements.size());
+        this.elements.add(element);
+        return this.elements.size() - 1;
+    }
+
+    /** return the index of {@param element}, or -1 if it does not have one. */
+    int find(Object element) {
+        Integer index = this.indices.get(element);
+        return index == null ? -1 : index;
+    }
+
+    /** return the index of {@param element}, which must have one. */
+    int indexOf(T element) {
+        int index = find(element);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("element %s has no index", element));
+        }
+        return index;
+    }
+
+    T get(int index) {
+        return this.elements.get(index);
+    }
+
+    int size() {
+        return this.elements.size();
+    }
+}
+
+/** Set of indexed elements stored as a bit vector.
+ *  Operations between sets over the same index work a machine word at a time. */
+class IndexedSet<T> extends AbstractSet<T> {
+    final ElementIndex<T> index;
+    final BitSet bits;
+
+    IndexedSet(ElementIndex<T> index) {
+        this(index, new BitSet(index.size()));
+    }
+
+    IndexedSet(ElementIndex<T> index, BitSet bits) {
+        this.index = index;
+        this.bits = bits;
+    }
+
+    IndexedSet<T> copy() {
+        return new IndexedSet<>(this.index, (BitSet) this.bits.clone());
+    }
+
+    /** return the bits of this set; these must not be modified. */
+    BitSet bitSet() {
+        return this.bits;
+    }
+
+    /** add all elements of {@param other} to this set. */
+    void unionWith(IndexedSet<T> other) {
+        assert(this.index == other.index);
+        this.bits.or(other.bitSet());
+    }
+
+    /** remove all elements that are not in {@param other} from this set. */
+    void intersectWith(IndexedSet<T> other) {
+        assert(this.index == other.index);
+        if (!(other instanceof UniverseSet<T>)) {
+            this.bits.and(other.bits);
+        }
+    }
+
+    /** remove all elements of {@param other} from this set. */
+    void subtract(IndexedSet<T> other) {
+        assert(this.index == other.index);
+        this.bits.andNot(other.bitSet());
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        int i = this.index.find(element);
+        return i >= 0 && this.bits.get(i);
+    }
+
+    @Override
+    public boolean add(T element) {
+        int i = this.index.indexOf(element);
+        boolean present = this.bits.get(i);
+        this.bits.set(i);
+        return !present;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        int i = this.index.find(element);
+        if (i < 0 || !this.bits.get(i)) {
+            return false;
+        }
+
+        this.bits.clear(i);
+        return true;
+    }
+
+    /** sets over the same index are added a word at a time. */
+    @Override
+    public boolean addAll(Collection<? extends T> elements) {
+        if (elements instanceof IndexedSet<?> other && other.index == this.index) {
+            int size = this.bits.cardinality();
+            this.bits.or(other.bitSet());
+            return this.bits.cardinality() != size;
+        }
+
+        return super.addAll(elements);
+    }
+
+    /** sets over the same index are removed a word at a time. */
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        if (elements instanceof IndexedSet<?> other && other.index == this.index) {
+            int size = this.bits.cardinality();
+            this.bits.andNot(other.bitSet());
+            return this.bits.cardinality() != size;
+        }
+
+        return super.removeAll(elements);
+    }
+
+    @Override
+    public void clear() {
+        this.bits.clear();
+    }
+
+    @Override
+    public int size() {
+        return this.bits.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.bits.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            int cur = -1;
+            int next = bits.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return this.next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (this.next < 0) {
+                    throw new NoSuchElementException();
+                }
+
+                this.cur = this.next;
+                this.next = bits.nextSetBit(this.next + 1);
+                return index.get(this.cur);
+            }
+
+            @Override
+            public void remove() {
+                bits.clear(this.cur);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof UniverseSet<?> universe) {
+            return universe.equals(this);
+
+        } else if (other instanceof IndexedSet<?> otherSet && otherSet.index == this.index) {
+            return this.bits.equals(otherSet.bits);
+
+        } else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
+
+/** The set of all elements of an index, represented symbolically: it has no bits of its own, so sharing it costs
+ *  nothing however large the index is. It cannot be modified; {@link #copy()} returns an explicit set that can. */
+class UniverseSet<T> extends IndexedSet<T> {
+    UniverseSet(ElementIndex<T> index) {
+        super(index, new BitSet(0));
+    }
+
+    @Override
+    IndexedSet<T> copy() {
+        var res = new IndexedSet<>(this.index);
+        res.bits.set(0, this.index.size());
+        return res;
+    }
+
+    @Override
+    BitSet bitSet() {
+        return copy().bits;
+    }
+
+    @Override
+    void unionWith(IndexedSet<T> other) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    void intersectWith(IndexedSet<T> other) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    void subtract(IndexedSet<T> other) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return this.index.find(element) >= 0;
+    }
+
+    @Override
+    public boolean add(T element) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> elements) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("the universe cannot be modified");
+    }
+
+    @Override
+    public int size() {
+        return this.index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.index.size() == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < index.size();
+            }
+
+            @Override
+            public T next() {
+                if (this.next >= index.size()) {
+                    throw new NoSuchElementException();
+                }
+
+                return index.get(this.next++);
+            }
+        };
+    }
+
+    /** an explicit set over the same index is the universe if it has every element, which only counts its bits. */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof UniverseSet<?> otherSet && otherSet.index == this.index) {
+            return true;
+
+        } else if (other instanceof IndexedSet<?> otherSet && otherSet.index == this.index) {
+            return otherSet.bits.cardinality() == this.index.size();
+
+        } else {
+            return other instanceof Set<?> otherSet && otherSet.size() == size() && this.containsAll(otherSet);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
+
+/** powerset lattice ordered by inclusion over a fixed element index (bottom is the empty set). */
+class BitSetPowersetLattice<T> implements CompleteUpperSemiLattice<IndexedSet<T>> {
+    ElementIndex<T> index;
+
+    BitSetPowersetLattice(ElementIndex<T> index) {
+        this.index = index;
+    }
+
+    @Override
+    public IndexedSet<T> join(Set<IndexedSet<T>> elements) {
+        var res = new IndexedSet<>(this.index);
+        for (IndexedSet<T> element : elements) {
+            res.unionWith(element);
+        }
+        return res;
+    }
+
+    @Override
+    public IndexedSet<T> bottom() {
+        return new IndexedSet<>(this.index);
+    }
+
+    @Override
+    public IndexedSet<T> startJoin() {
+        return new IndexedSet<>(this.index);
+    }
+
+    @Override
+    public IndexedSet<T> joinInto(IndexedSet<T> accumulator, IndexedSet<T> element) {
+        accumulator.unionWith(element);
+        return accumulator;
+    }
+}
+
+/** reverse powerset lattice ordered by reverse inclusion over a fixed element index (bottom is the universe).
+ *  Bottom is one shared {@link UniverseSet}, so initializing every variable to it never copies the universe;
+ *  joins skip it, since it is the identity of intersection. */
+class ReverseBitSetPowersetLattice<T> implements CompleteUpperSemiLattice<IndexedSet<T>> {
+    ElementIndex<T> index;
+    private final UniverseSet<T> universe;
+
+    ReverseBitSetPowersetLattice(ElementIndex<T> index) {
+        this.index = index;
+        this.universe = new UniverseSet<>(index);
+    }
+
+    @Override
+    public IndexedSet<T> join(Set<IndexedSet<T>> elements) {
+        var res = startJoin();
+        for (IndexedSet<T> element : elements) {
+            res = joinInto(res, element);
+        }
+        return finishJoin(res);
+    }
+
+    @Override
+    public IndexedSet<T> bottom() {
+        return this.universe;
+    }
+
+    /** the accumulator is null until the first element is joined, standing for the universe. */
+    @Override
+    public IndexedSet<T> startJoin() {
+        return null;
+    }
+
+    @Override
+    public IndexedSet<T> joinInto(IndexedSet<T> accumulator, IndexedSet<T> element) {
+        if (element instanceof UniverseSet<T>) {
+            return accumulator;
+
+        } else if (accumulator == null) {
+            return element.copy();
+
+        } else {
+            accumulator.intersectWith(element);
+            return accumulator;
+        }
+    }
+
+    @Override
+    public IndexedSet<T> finishJoin(IndexedSet<T> accumulator) {
+        return accumulator == null ? bottom() : accumulator;
+    }
+}
@@ -6,6 +6,9 @@ import java.util.LinkedList;
 abstract class CFGBuilder {
     protected final ControlFlowGraph cfg;
 
+    // whether the built CFG is simplified; benchmarks of simplify build CFGs without it
+    boolean simplify = true;
+
     CFGBuilder() {
         this.cfg = new ControlFlowGraph();
     }
@@ -17,7 +20,9 @@ abstract class CFGBuilder {
         var entryBlock = this.cfg.createBlock(new LinkedList<>(), new UnconditionalJump(outContext.id));
         this.cfg.setEntryBlock(entryBlock.id);
         this.cfg.setExitBlock(exitBlock.id);
-        this.cfg.simplify();
+        if (this.simplify) {
+            this.cfg.simplify();
+        }
         return this.cfg;
     }
 
@@ -25,7 +30,7 @@ abstract class CFGBuilder {
 
     protected BasicBlock processStatement(Statement stmt, BasicBlock block) {
         if (stmt instanceof AtomicStatement) {
-            block.statements.addFirst((AtomicStatement) stmt);
+            block.statements.addFirst(intern((AtomicStatement) stmt));
             return block;
 
         } else if (stmt instanceof Conditional) {
@@ -37,21 +42,30 @@ abstract class CFGBuilder {
 
             return this.cfg.createBlock(
                 new LinkedList<>(),
-                new ConditionalJump(((Conditional) stmt).guard, outContextThen.id, outContextElse.id)
+                new ConditionalJump(intern(((Conditional) stmt).guard), outContextThen.id, outContextElse.id)
             );
 
         } else if (stmt instanceof While) {
-            var inBlockBody = this.cfg.createBlock(new LinkedList<>(), new UnconditionalJump(block.id));
+            // the end of the body jumps back to the guard, so the guard block is created first
+            var guardBlock = this.cfg.createBlock(new LinkedList<>(), new Halt());
+            var inBlockBody = this.cfg.createBlock(new LinkedList<>(), new UnconditionalJump(guardBlock.id));
             var outContextBody = processStatements(((While) stmt).body, inBlockBody);
+            guardBlock.jump = new ConditionalJump(intern(((While) stmt).guard), outContextBody.id, block.id);
 
-            return this.cfg.createBlock(
-                new LinkedList<>(),
-                new ConditionalJump(((While) stmt).guard, outContextBody.id, block.id)
-            );
+            // preceding statements must not be added to the guard block, since it is executed on every iteration
+            return this.cfg.createBlock(new LinkedList<>(), new UnconditionalJump(guardBlock.id));
         }
 
         throw new RuntimeException("unreachable");
     }
+
+    private Expression intern(Expression expr) {
+        return this.cfg.expressions.intern(expr);
+    }
+
+    private AtomicStatement intern(AtomicStatement stmt) {
+        return this.cfg.intern(stmt);
+    }
 }
 
 /** Creates a CFG of basic blocks from a program. */
@@ -0,0 +1,537 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/** Variable-length integers and strings shared by the binary encodings. */
+class Binary {
+    /** write {@param value}, which must not be negative, in 7-bit groups, least significant first. */
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        assert(value >= 0);
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int res = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            res |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return res;
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        var bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** map {@param file} read-only; files over 2 GB cannot be mapped into one buffer. */
+    static ByteBuffer map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException(String.format("%s is too large to map", file));
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /** return the position of the next byte written to {@param out}, checking that it still fits an int. */
+    static int position(DataOutputStream out) {
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new RuntimeException("encoding is too large");
+        }
+        return out.size();
+    }
+}
+
+/** Binary encoding of control flow graphs.
+ *
+ *  The file holds a record per block (its jump, then its statements, with IDs as varints), a fixed-size record per
+ *  interned expression (a kind byte and two ints, children always before their parents), and a table of the strings
+ *  used as variable names. A trailer at the end gives the counts and the offsets of the string and block offset
+ *  tables, so a reader can find any block, expression or string without decoding the others.
+ *  The edit history of the CFG is not encoded. */
+class CfgCodec {
+    static final int MAGIC = 0x44464347;
+    static final int VERSION = 1;
+
+    // size of an expression record, and of the trailer
+    static final int EXPRESSION_BYTES = 9;
+    static final int TRAILER_BYTES = 10 * 4;
+
+    static final byte HALT = 0;
+    static final byte GOTO = 1;
+    static final byte BRANCH = 2;
+
+    static final byte ASSIGN = 0;
+    static final byte OUTPUT = 1;
+
+    static final byte INPUT = 0;
+    static final byte LITERAL = 1;
+    static final byte VAR = 2;
+    static final byte ADD = 3;
+    static final byte MULTIPLY = 4;
+
+    /** write {@param cfg} to {@param file}. Expressions not yet interned by the CFG are interned first. */
+    static void write(ControlFlowGraph cfg, Path file) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            write(cfg, out);
+        }
+    }
+
+    static void write(ControlFlowGraph cfg, DataOutputStream out) throws IOException {
+        new CfgCodec(cfg, out).write();
+    }
+
+    /** return a SHA-256 hash of the structure of {@param cfg}: its entry and exit blocks, and the ID, jump and
+     *  statements of each block, in order of IDs. Expressions are written as trees, numbering nodes in the order they
+     *  are first met so that structurally equal nodes are written once. Only the expressions of statements and guards are
+     *  walked, and nothing is interned, so the hash of structurally equal CFGs is the same whatever their interners
+     *  hold. */
+    static byte[] digest(ControlFlowGraph cfg) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        var sink = new DigestOutputStream(OutputStream.nullOutputStream(), digest);
+        try (var out = new DataOutputStream(new BufferedOutputStream(sink, 1 << 16))) {
+            new CanonicalCfgWriter(out).write(cfg);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return digest.digest();
+    }
+
+    /** map {@param file} and return a view that decodes blocks when they are asked for. */
+    static MappedCfg open(Path file) throws IOException {
+        return new MappedCfg(Binary.map(file));
+    }
+
+    private final ControlFlowGraph cfg;
+    private final DataOutputStream out;
+
+    // IDs of the strings written so far, in order
+    private final LinkedHashMap<String, Integer> strings;
+
+    private CfgCodec(ControlFlowGraph cfg, DataOutputStream out) {
+        this.cfg = cfg;
+        this.out = out;
+        this.strings = new LinkedHashMap<>();
+    }
+
+    private int stringId(String s) {
+        return this.strings.computeIfAbsent(s, k -> this.strings.size());
+    }
+
+    private int expressionId(Expression expr) {
+        return this.cfg.expressions.intern(expr).id;
+    }
+
+    private void write() throws IOException {
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+
+        // blocks come first, since encoding them may intern new expressions
+        int[] blockOffsets = new int[this.cfg.curBlockId];
+        Arrays.fill(blockOffsets, -1);
+        var blockIds = new ArrayList<>(this.cfg.blockMap.keySet());
+        Collections.sort(blockIds);
+        for (int blockId : blockIds) {
+            blockOffsets[blockId] = Binary.position(this.out);
+            writeBlock(this.cfg.blockMap.get(blockId));
+        }
+
+        int expressionsOffset = Binary.position(this.out);
+        int numExpressions = this.cfg.expressions.size();
+        for (int id = 0; id < numExpressions; id++) {
+            writeExpression(this.cfg.expressions.get(id));
+        }
+
+        var stringOffsets = new int[this.strings.size()];
+        int i = 0;
+        for (var s : this.strings.keySet()) {
+            stringOffsets[i] = Binary.position(this.out);
+            Binary.writeString(this.out, s);
+            i += 1;
+        }
+
+        int stringOffsetsOffset = Binary.position(this.out);
+        for (int offset : stringOffsets) {
+            this.out.writeInt(offset);
+        }
+
+        int blockOffsetsOffset = Binary.position(this.out);
+        for (int offset : blockOffsets) {
+            this.out.writeInt(offset);
+        }
+
+        this.out.writeInt(this.cfg.curBlockId);
+        this.out.writeInt(this.cfg.entryBlock);
+        this.out.writeInt(this.cfg.exitBlock);
+        this.out.writeInt(blockIds.size());
+        this.out.writeInt(numExpressions);
+        this.out.writeInt(stringOffsets.length);
+        this.out.writeInt(expressionsOffset);
+        this.out.writeInt(stringOffsetsOffset);
+        this.out.writeInt(blockOffsetsOffset);
+        this.out.writeInt(MAGIC);
+    }
+
+    private void writeBlock(BasicBlock block) throws IOException {
+        if (block.jump instanceof Halt) {
+            this.out.writeByte(HALT);
+
+        } else if (block.jump instanceof UnconditionalJump jump) {
+            this.out.writeByte(GOTO);
+            Binary.writeVarint(this.out, jump.target);
+
+        } else if (block.jump instanceof ConditionalJump jump) {
+            this.out.writeByte(BRANCH);
+            Binary.writeVarint(this.out, expressionId(jump.guard));
+            Binary.writeVarint(this.out, jump.trueTarget);
+            Binary.writeVarint(this.out, jump.falseTarget);
+
+        } else {
+            throw new RuntimeException("unknown jump variant");
+        }
+
+        Binary.writeVarint(this.out, block.statements.size());
+        for (AtomicStatement statement : block.statements) {
+            if (statement instanceof Assign assign) {
+                this.out.writeByte(ASSIGN);
+                Binary.writeVarint(this.out, stringId(assign.var));
+                Binary.writeVarint(this.out, expressionId(assign.rhs));
+
+            } else if (statement instanceof Output output) {
+                this.out.writeByte(OUTPUT);
+                Binary.writeVarint(this.out, expressionId(output.expr));
+
+            } else {
+                throw new RuntimeException("unknown statement variant");
+            }
+        }
+    }
+
+    private void writeExpression(Expression expr) throws IOException {
+        if (expr instanceof Input) {
+            writeExpression(INPUT, 0, 0);
+
+        } else if (expr instanceof Literal literal) {
+            writeExpression(LITERAL, literal.val, 0);
+
+        } else if (expr instanceof Var var) {
+            writeExpression(VAR, stringId(var.name), 0);
+
+        } else if (expr instanceof Add add) {
+            writeExpression(ADD, add.lhs.id, add.rhs.id);
+
+        } else if (expr instanceof Multiply multiply) {
+            writeExpression(MULTIPLY, multiply.lhs.id, multiply.rhs.id);
+
+        } else {
+            throw new RuntimeException("unknown expression variant");
+        }
+    }
+
+    private void writeExpression(byte kind, int a, int b) throws IOException {
+        this.out.writeByte(kind);
+        this.out.writeInt(a);
+        this.out.writeInt(b);
+    }
+}
+
+/** Writes the structure of a CFG in a canonical form that only depends on the blocks and what they hold, for
+ *  {@link CfgCodec#digest}. It cannot be decoded. */
+class CanonicalCfgWriter {
+    // marks a node that was already written, followed by its number
+    static final byte SEEN = 5;
+
+    private final DataOutputStream out;
+
+    // numbers of the nodes written so far, by structure, so that sharing between nodes does not matter
+    private final HashMap<Expression, Integer> seen;
+
+    CanonicalCfgWriter(DataOutputStream out) {
+        this.out = out;
+        this.seen = new HashMap<>();
+    }
+
+    void write(ControlFlowGraph cfg) throws IOException {
+        this.out.writeInt(cfg.entryBlock);
+        this.out.writeInt(cfg.exitBlock);
+        this.out.writeInt(cfg.blockMap.size());
+
+        var blockIds = new ArrayList<>(cfg.blockMap.keySet());
+        Collections.sort(blockIds);
+        for (int blockId : blockIds) {
+            var block = cfg.blockMap.get(blockId);
+            Binary.writeVarint(this.out, blockId);
+            if (block.jump instanceof Halt) {
+                this.out.writeByte(CfgCodec.HALT);
+
+            } else if (block.jump instanceof UnconditionalJump jump) {
+                this.out.writeByte(CfgCodec.GOTO);
+                Binary.writeVarint(this.out, jump.target);
+
+            } else if (block.jump instanceof ConditionalJump jump) {
+                this.out.writeByte(CfgCodec.BRANCH);
+                writeExpression(jump.guard);
+                Binary.writeVarint(this.out, jump.trueTarget);
+                Binary.writeVarint(this.out, jump.falseTarget);
+
+            } else {
+                throw new RuntimeException("unknown jump variant");
+            }
+
+            Binary.writeVarint(this.out, block.statements.size());
+            for (AtomicStatement statement : block.statements) {
+                if (statement instanceof Assign assign) {
+                    this.out.writeByte(CfgCodec.ASSIGN);
+                    Binary.writeString(this.out, assign.var);
+                    writeExpression(assign.rhs);
+
+                } else if (statement instanceof Output output) {
+                    this.out.writeByte(CfgCodec.OUTPUT);
+                    writeExpression(output.expr);
+
+                } else {
+                    throw new RuntimeException("unknown statement variant");
+                }
+            }
+        }
+    }
+
+    private void writeExpression(Expression expr) throws IOException {
+        var number = this.seen.get(expr);
+        if (number != null) {
+            this.out.writeByte(SEEN);
+            Binary.writeVarint(this.out, number);
+            return;
+        }
+
+        if (expr instanceof Input) {
+            this.out.writeByte(CfgCodec.INPUT);
+
+        } else if (expr instanceof Literal literal) {
+            this.out.writeByte(CfgCodec.LITERAL);
+            this.out.writeInt(literal.val);
+
+        } else if (expr instanceof Var var) {
+            this.out.writeByte(CfgCodec.VAR);
+            Binary.writeString(this.out, var.name);
+
+        } else if (expr instanceof Add add) {
+            this.out.writeByte(CfgCodec.ADD);
+            writeExpression(add.lhs);
+            writeExpression(add.rhs);
+
+        } else if (expr instanceof Multiply multiply) {
+            this.out.writeByte(CfgCodec.MULTIPLY);
+            writeExpression(multiply.lhs);
+            writeExpression(multiply.rhs);
+
+        } else {
+            throw new RuntimeException("unknown expression variant");
+        }
+
+        // numbered after its children, so the numbers follow the order in which nodes are completed
+        this.seen.put(expr, this.seen.size());
+    }
+}
+
+/** Read-only view of an encoded CFG in a (usually memory-mapped) buffer. Opening it only reads the trailer;
+ *  blocks are decoded each time they are asked for, and expressions and strings once, on first use.
+ *  Not safe for use from several threads. */
+class MappedCfg {
+    private final ByteBuffer buffer;
+
+    final int curBlockId;
+    final int entryBlock;
+    final int exitBlock;
+    final int numBlocks;
+    final int numExpressions;
+    final int numStrings;
+
+    private final int expressionsOffset;
+    private final int stringOffsetsOffset;
+    private final int blockOffsetsOffset;
+
+    private final Expression[] expressions;
+    private final String[] strings;
+
+    MappedCfg(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int trailer = buffer.limit() - CfgCodec.TRAILER_BYTES;
+        if (trailer < 8 || buffer.getInt(0) != CfgCodec.MAGIC || buffer.getInt(buffer.limit() - 4) != CfgCodec.MAGIC) {
+            throw new RuntimeException("not an encoded CFG");
+        }
+        if (buffer.getInt(4) != CfgCodec.VERSION) {
+            throw new RuntimeException(String.format("unsupported CFG encoding version %d", buffer.getInt(4)));
+        }
+
+        this.curBlockId = buffer.getInt(trailer);
+        this.entryBlock = buffer.getInt(trailer + 4);
+        this.exitBlock = buffer.getInt(trailer + 8);
+        this.numBlocks = buffer.getInt(trailer + 12);
+        this.numExpressions = buffer.getInt(trailer + 16);
+        this.numStrings = buffer.getInt(trailer + 20);
+        this.expressionsOffset = buffer.getInt(trailer + 24);
+        this.stringOffsetsOffset = buffer.getInt(trailer + 28);
+        this.blockOffsetsOffset = buffer.getInt(trailer + 32);
+
+        this.expressions = new Expression[this.numExpressions];
+        this.strings = new String[this.numStrings];
+    }
+
+    boolean hasBlock(int blockId) {
+        return blockId >= 0 && blockId < this.curBlockId && blockOffset(blockId) >= 0;
+    }
+
+    private int blockOffset(int blockId) {
+        return this.buffer.getInt(this.blockOffsetsOffset + 4 * blockId);
+    }
+
+    /** decode the block with ID {@param blockId}; each call returns a new block. */
+    BasicBlock block(int blockId) {
+        if (!hasBlock(blockId)) {
+            throw new RuntimeException(String.format("no block %d", blockId));
+        }
+
+        var in = this.buffer.duplicate().position(blockOffset(blockId));
+        Jump jump = switch (in.get()) {
+            case CfgCodec.HALT -> new Halt();
+            case CfgCodec.GOTO -> new UnconditionalJump(Binary.readVarint(in));
+            case CfgCodec.BRANCH -> {
+                var guard = expression(Binary.readVarint(in));
+                int trueTarget = Binary.readVarint(in);
+                int falseTarget = Binary.readVarint(in);
+                yield new ConditionalJump(guard, trueTarget, falseTarget);
+            }
+            default -> throw new RuntimeException(String.format("corrupt jump in block %d", blockId));
+        };
+
+        int numStatements = Binary.readVarint(in);
+        var statements = new LinkedList<AtomicStatement>();
+        for (int i = 0; i < numStatements; i++) {
+            switch (in.get()) {
+                case CfgCodec.ASSIGN -> {
+                    var var = string(Binary.readVarint(in));
+                    statements.add(new Assign(var, expression(Binary.readVarint(in))));
+                }
+                case CfgCodec.OUTPUT -> statements.add(new Output(expression(Binary.readVarint(in))));
+                default -> throw new RuntimeException(String.format("corrupt statement in block %d", blockId));
+            }
+        }
+
+        return new BasicBlock(blockId, statements, jump);
+    }
+
+    String string(int id) {
+        if (this.strings[id] == null) {
+            int offset = this.buffer.getInt(this.stringOffsetsOffset + 4 * id);
+            this.strings[id] = Binary.readString(this.buffer.duplicate().position(offset));
+        }
+        return this.strings[id];
+    }
+
+    /** return the expression with ID {@param id}, decoding its missing subexpressions first. */
+    Expression expression(int id) {
+        // children have smaller IDs than their parents, but trees may be deep, so decode with an explicit stack
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = id;
+        while (size > 0) {
+            int cur = stack[size - 1];
+            if (this.expressions[cur] != null) {
+                size -= 1;
+                continue;
+            }
+
+            int record = this.expressionsOffset + CfgCodec.EXPRESSION_BYTES * cur;
+            byte kind = this.buffer.get(record);
+            int a = this.buffer.getInt(record + 1);
+            int b = this.buffer.getInt(record + 5);
+            boolean binary = kind == CfgCodec.ADD || kind == CfgCodec.MULTIPLY;
+            if (binary && (this.expressions[a] == null || this.expressions[b] == null)) {
+                if (size + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[size++] = a;
+                stack[size++] = b;
+                continue;
+            }
+
+            this.expressions[cur] = switch (kind) {
+                case CfgCodec.INPUT -> new Input();
+                case CfgCodec.LITERAL -> new Literal(a);
+                case CfgCodec.VAR -> new Var(string(a));
+                case CfgCodec.ADD -> new Add(this.expressions[a], this.expressions[b]);
+                case CfgCodec.MULTIPLY -> new Multiply(this.expressions[a], this.expressions[b]);
+                default -> throw new RuntimeException(String.format("corrupt expression %d", cur));
+            };
+            size -= 1;
+        }
+        return this.expressions[id];
+    }
+
+    /** decode every block into a CFG. Canonical expressions get the IDs they had in the encoded CFG. */
+    ControlFlowGraph toControlFlowGraph() {
+        var cfg = new ControlFlowGraph();
+        for (int id = 0; id < this.numExpressions; id++) {
+            var canonical = cfg.expressions.intern(expression(id));
+            assert(canonical.id == id);
+        }
+
+        for (int blockId = 0; blockId < this.curBlockId; blockId++) {
+            if (!hasBlock(blockId)) {
+                continue;
+            }
+
+            var block = block(blockId);
+            var statements = new LinkedList<AtomicStatement>();
+            for (AtomicStatement statement : block.statements) {
+                statements.add(cfg.intern(statement));
+            }
+            if (block.jump instanceof ConditionalJump jump) {
+                jump.guard = cfg.expressions.intern(jump.guard);
+            }
+            cfg.blockMap.put(blockId, new BasicBlock(blockId, statements, block.jump));
+        }
+
+        cfg.curBlockId = this.curBlockId;
+        cfg.setEntryBlock(this.entryBlock);
+        cfg.setExitBlock(this.exitBlock);
+        return cfg;
+    }
+}
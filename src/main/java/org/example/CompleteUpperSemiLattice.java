@@ -15,4 +15,35 @@ interface CompleteUpperSemiLattice<T> {
     default T bottom() {
         return this.join(new HashSet<>());
     }
+
+    /** Start an accumulated join of zero or more elements.
+     *  The returned accumulator is owned by the caller and must only be passed to {@link #joinInto}
+     *  and {@link #finishJoin}; lattices may represent it however they like, including mutably. */
+    default T startJoin() {
+        return this.bottom();
+    }
+
+    /** Join {@param element} into {@param accumulator} and return the updated accumulator,
+     *  which may be the same object. {@param element} itself is never modified. */
+    default T joinInto(T accumulator, T element) {
+        return this.join(accumulator, element);
+    }
+
+    /** Finish an accumulated join and return the join of all elements passed to {@link #joinInto}. */
+    default T finishJoin(T accumulator) {
+        return accumulator;
+    }
+}
+
+/** Lattice with widening and narrowing operators, for lattices with infinite ascending (resp. descending) chains.
+ *  Applying widening at least once on every cycle of a system of equations makes the ascending iteration
+ *  terminate; narrowing then recovers precision in a descending iteration that also terminates. */
+interface WideningLattice<T> extends CompleteUpperSemiLattice<T> {
+    /** return an upper bound of {@param previous} and {@param next}; any sequence x_{i+1} = widen(x_i, y_i)
+     *  must eventually stabilize. */
+    T widen(T previous, T next);
+
+    /** return an element between {@param next} and {@param previous}, assuming next is below previous;
+     *  any sequence x_{i+1} = narrow(x_i, y_i) must eventually stabilize. */
+    T narrow(T previous, T next);
 }
@@ -119,15 +119,56 @@ class BasicBlock {
     }
 }
 
+/** Change made to a CFG after it was built, recorded so that analyses can be updated incrementally. */
+class CfgEdit {
+    enum Kind { STATEMENT_REPLACED, BLOCK_ADDED, JUMP_RETARGETED }
+
+    Kind kind;
+    int blockId;
+
+    // targets of the block's jump before and after the edit
+    Set<Integer> oldTargets;
+    Set<Integer> newTargets;
+
+    CfgEdit(Kind kind, int blockId, Set<Integer> oldTargets, Set<Integer> newTargets) {
+        this.kind = kind;
+        this.blockId = blockId;
+        this.oldTargets = oldTargets;
+        this.newTargets = newTargets;
+    }
+
+    /** return the blocks whose facts may be directly invalidated by the edit, in either direction. */
+    Set<Integer> affectedBlocks() {
+        var res = new HashSet<Integer>();
+        res.add(this.blockId);
+        res.addAll(this.oldTargets);
+        res.addAll(this.newTargets);
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%d)", this.kind, this.blockId);
+    }
+}
+
 class ControlFlowGraph {
     int curBlockId;
     int entryBlock;
     int exitBlock;
     HashMap<Integer, BasicBlock> blockMap;
 
+    // canonical nodes of the expressions in the CFG's statements and guards
+    ExpressionInterner expressions;
+
+    // edits made through replaceStatement, addBlock and retarget, in order
+    ArrayList<CfgEdit> edits;
+
     /** Build control flow graph from program. */
     ControlFlowGraph() {
         this.blockMap = new HashMap<>();
+        this.expressions = new ExpressionInterner();
+        this.edits = new ArrayList<>();
     }
 
     int freshBlockId()  {
@@ -143,6 +184,46 @@ class ControlFlowGraph {
         return block;
     }
 
+    /** return a copy of {@param stmt} whose expressions are canonical nodes of the CFG's interner. */
+    AtomicStatement intern(AtomicStatement stmt) {
+        if (stmt instanceof Assign assign) {
+            return new Assign(assign.var, this.expressions.intern(assign.rhs));
+
+        } else if (stmt instanceof Output output) {
+            return new Output(this.expressions.intern(output.expr));
+        }
+
+        throw new RuntimeException("unreachable");
+    }
+
+    /** replace the {@param index}-th statement of block {@param blockId} with {@param stmt}, recording the edit. */
+    void replaceStatement(int blockId, int index, AtomicStatement stmt) {
+        var block = this.blockMap.get(blockId);
+        block.statements.set(index, intern(stmt));
+        var targets = block.jump.possibleTargets();
+        this.edits.add(new CfgEdit(CfgEdit.Kind.STATEMENT_REPLACED, blockId, targets, targets));
+    }
+
+    /** create a block after the CFG was built, recording the edit. */
+    BasicBlock addBlock(LinkedList<AtomicStatement> statements, Jump jump) {
+        var interned = new LinkedList<AtomicStatement>();
+        for (AtomicStatement stmt : statements) {
+            interned.add(intern(stmt));
+        }
+
+        var block = createBlock(interned, jump);
+        this.edits.add(new CfgEdit(CfgEdit.Kind.BLOCK_ADDED, block.id, Set.of(), jump.possibleTargets()));
+        return block;
+    }
+
+    /** retarget the jump of block {@param blockId} with {@link Jump#replaceTarget}, recording the edit. */
+    void retarget(int blockId, Map<Integer,Integer> substMap) {
+        var jump = this.blockMap.get(blockId).jump;
+        var oldTargets = jump.possibleTargets();
+        jump.replaceTarget(substMap);
+        this.edits.add(new CfgEdit(CfgEdit.Kind.JUMP_RETARGETED, blockId, oldTargets, jump.possibleTargets()));
+    }
+
     void setEntryBlock(int blockId) {
         assert(this.blockMap.containsKey(blockId));
         this.entryBlock = blockId;
@@ -160,6 +241,75 @@ class ControlFlowGraph {
         return idList.stream().map(id -> this.blockMap.get(id)).collect(Collectors.toList());
     }
 
+    /** return a map from block IDs to the IDs of blocks that jump to them. */
+    HashMap<Integer, Set<Integer>> predecessors() {
+        var preds = new HashMap<Integer, Set<Integer>>();
+        for (int blockId : this.blockMap.keySet()) {
+            preds.put(blockId, new HashSet<>());
+        }
+
+        for (BasicBlock block : this.blockMap.values()) {
+            for (int target : block.jump.possibleTargets()) {
+                preds.get(target).add(block.id);
+            }
+        }
+
+        return preds;
+    }
+
+    /** return block IDs in reverse postorder of a depth-first traversal from the entry block.
+     *  Blocks unreachable from the entry block are appended at the end. */
+    List<Integer> reversePostorder() {
+        var succs = new HashMap<Integer, Set<Integer>>();
+        for (BasicBlock block : this.blockMap.values()) {
+            succs.put(block.id, block.jump.possibleTargets());
+        }
+
+        return reversePostorder(this.entryBlock, succs);
+    }
+
+    /** return block IDs in reverse postorder of a depth-first traversal of the reversed graph from the exit block.
+     *  Blocks that cannot reach the exit block are appended at the end. */
+    List<Integer> reverseGraphReversePostorder() {
+        return reversePostorder(this.exitBlock, predecessors());
+    }
+
+    private List<Integer> reversePostorder(int root, Map<Integer, Set<Integer>> succs) {
+        var postorder = new ArrayList<Integer>();
+        var visited = new HashSet<Integer>();
+
+        // iterative DFS, so that long straight-line CFGs don't overflow the stack
+        var stack = new ArrayDeque<Iterator<Integer>>();
+        var stackIds = new ArrayDeque<Integer>();
+        visited.add(root);
+        stack.push(succs.get(root).iterator());
+        stackIds.push(root);
+
+        while (!stack.isEmpty()) {
+            var iter = stack.peek();
+            if (iter.hasNext()) {
+                int next = iter.next();
+                if (visited.add(next)) {
+                    stack.push(succs.get(next).iterator());
+                    stackIds.push(next);
+                }
+
+            } else {
+                stack.pop();
+                postorder.add(stackIds.pop());
+            }
+        }
+
+        Collections.reverse(postorder);
+
+        var unvisited = new ArrayList<Integer>(this.blockMap.keySet());
+        unvisited.removeAll(visited);
+        Collections.sort(unvisited);
+        postorder.addAll(unvisited);
+
+        return postorder;
+    }
+
     @Override
     public String toString() {
         var builder = new StringBuilder();
@@ -173,29 +323,128 @@ class ControlFlowGraph {
         return builder.toString();
     }
 
+    /** Simplify the CFG without fusing blocks, see {@link #simplify(boolean)}. */
     void simplify() {
+        simplify(false);
+    }
+
+    /** Simplify the CFG in time linear in its size:
+     *  - jumps to empty blocks that unconditionally jump elsewhere go straight to the end of the chain of such blocks,
+     *    which are removed (except the entry block);
+     *  - blocks that are not reachable from the entry block are removed (except the exit block);
+     *  - if {@param fuse} is set, a block that unconditionally jumps to a block with no other predecessor absorbs it,
+     *    so that blocks are maximal straight-line sequences. The entry and exit blocks are never fused, since
+     *    analyses expect them to be empty.
+     *  Block IDs of the remaining blocks are unchanged, but edits are not recorded: analyses must be created after
+     *  simplifying. */
+    void simplify(boolean fuse) {
+        // finalTarget[id] is the block that jumps to block id should go to, or -1 until it is known
+        int[] finalTarget = new int[this.curBlockId];
+        Arrays.fill(finalTarget, -1);
+
+        // follow each chain of forwarding blocks once, then point every block of the chain at its end; a chain that
+        // loops back on itself is an infinite loop, and the block where it closes is kept to hold it
         var substMap = new HashMap<Integer, Integer>();
-        for (Map.Entry<Integer, BasicBlock> kv : this.blockMap.entrySet()) {
-            var blockId = kv.getKey();
-            var block = kv.getValue();
-
-            // remove block and repoint all of its parent blocks if:
-            // - it is not the entry block
-            // - it is empty
-            // - it unconditionally jumps to another block
-            if (block.id != this.entryBlock && block.statements.size() == 0 && block.jump instanceof UnconditionalJump jump) {
-                substMap.put(blockId, jump.target);
+        int[] path = new int[16];
+        for (BasicBlock block : this.blockMap.values()) {
+            int length = 0;
+            int cur = block.id;
+            while (finalTarget[cur] == -1 && forwards(this.blockMap.get(cur))) {
+                finalTarget[cur] = -2;
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = cur;
+                cur = ((UnconditionalJump) this.blockMap.get(cur).jump).target;
             }
-        }
 
-        // apply substitutions
-        for (Map.Entry<Integer, BasicBlock> kv : this.blockMap.entrySet()) {
-            kv.getValue().jump.replaceTarget(substMap);
+            int end = finalTarget[cur] >= 0 ? finalTarget[cur] : cur;
+            if (finalTarget[cur] == -2) {
+                // the chain closed on a block of its own path
+                finalTarget[cur] = cur;
+            }
+            for (int i = 0; i < length; i++) {
+                if (path[i] != end) {
+                    finalTarget[path[i]] = end;
+                    substMap.put(path[i], end);
+                }
+            }
         }
 
-        // remove unused blocks
+        // substitutions are already final, so each jump takes one lookup per target
+        for (BasicBlock block : this.blockMap.values()) {
+            block.jump.replaceTarget(substMap);
+        }
         for (int blockId : substMap.keySet()) {
             this.blockMap.remove(blockId);
         }
+
+        removeUnreachableBlocks();
+        if (fuse) {
+            fuseBlocks();
+        }
+    }
+
+    /** whether jumps to {@param block} can go straight to its target instead. */
+    private boolean forwards(BasicBlock block) {
+        return block.id != this.entryBlock && block.statements.isEmpty() && block.jump instanceof UnconditionalJump;
+    }
+
+    /** remove the blocks that cannot be reached from the entry block, except for the exit block. */
+    private void removeUnreachableBlocks() {
+        boolean[] reachable = new boolean[this.curBlockId];
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = this.entryBlock;
+        reachable[this.entryBlock] = true;
+        while (size > 0) {
+            var block = this.blockMap.get(stack[--size]);
+            for (int target : block.jump.possibleTargets()) {
+                if (!reachable[target]) {
+                    reachable[target] = true;
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = target;
+                }
+            }
+        }
+
+        this.blockMap.keySet().removeIf(blockId -> !reachable[blockId] && blockId != this.exitBlock);
+    }
+
+    /** let blocks absorb the blocks they unconditionally jump to, when they are those blocks' only predecessor. */
+    private void fuseBlocks() {
+        int[] numPredecessors = new int[this.curBlockId];
+        for (BasicBlock block : this.blockMap.values()) {
+            for (int target : block.jump.possibleTargets()) {
+                numPredecessors[target] += 1;
+            }
+        }
+
+        // absorbing a block does not change the number of predecessors of any remaining block, so each block is
+        // checked once, after it has absorbed all the blocks it can
+        var absorbed = new ArrayList<Integer>();
+        for (BasicBlock block : this.blockMap.values()) {
+            if (block.id == this.entryBlock || numPredecessors[block.id] < 0) {
+                continue;
+            }
+
+            while (block.jump instanceof UnconditionalJump jump
+                    && jump.target != block.id
+                    && jump.target != this.exitBlock
+                    && jump.target != this.entryBlock
+                    && numPredecessors[jump.target] == 1) {
+                var next = this.blockMap.get(jump.target);
+                block.statements.addAll(next.statements);
+                block.jump = next.jump;
+                numPredecessors[next.id] = -1;
+                absorbed.add(next.id);
+            }
+        }
+
+        for (int blockId : absorbed) {
+            this.blockMap.remove(blockId);
+        }
     }
 }
\ No newline at end of file
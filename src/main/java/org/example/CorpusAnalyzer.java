@@ -0,0 +1,198 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/** Solutions of all analyses for one program of a corpus, or the error that stopped its analysis. */
+class ProgramResult {
+    // position of the program in the corpus
+    int index;
+    Block program;
+    ControlFlowGraph cfg;
+
+    // solution of each analysis, by analysis name; partial if error is set
+    LinkedHashMap<String, HashMap<Integer, ?>> solutions;
+    Throwable error;
+
+    // time spent building the CFG and running the analyses
+    long nanos;
+
+    ProgramResult(int index, Block program) {
+        this.index = index;
+        this.program = program;
+        this.solutions = new LinkedHashMap<>();
+    }
+}
+
+/** Aggregate statistics of a corpus run. */
+class CorpusReport {
+    int programs;
+    int failures;
+    long analyses;
+
+    // wall-clock time of the run, and total time spent on individual programs
+    long elapsedNanos;
+    long programNanos;
+
+    double programsPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.programs / (this.elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%d programs (%d failed), %d analyses in %.1f ms: %.1f programs/s, %.3f ms/program",
+            this.programs,
+            this.failures,
+            this.analyses,
+            this.elapsedNanos / 1e6,
+            programsPerSecond(),
+            this.programs == 0 ? 0 : this.programNanos / 1e6 / this.programs
+        );
+    }
+}
+
+/** Runs a set of analyses over a stream of programs concurrently.
+ *  Programs are pulled from the stream only when fewer than {@code maxInFlight} are being analyzed, and each
+ *  result is handed to the sink as soon as it is ready and then dropped, so memory use does not grow with the
+ *  size of the corpus. Tasks run on virtual threads when the runtime has them, and on a fixed pool of platform
+ *  threads otherwise. */
+class CorpusAnalyzer {
+    LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>> analyses;
+    Function<Block, ControlFlowGraph> cfgBuilder;
+    int maxInFlight;
+
+    CorpusAnalyzer(Map<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>> analyses, int maxInFlight) {
+        this.analyses = new LinkedHashMap<>(analyses);
+        this.cfgBuilder = program -> new AtomicCFGBuilder().buildCFG(program);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** return an executor that starts a virtual thread per task if the runtime supports them. */
+    static ExecutorService newExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /** Analyze every program of {@param programs} and pass each result to {@param sink}.
+     *  Results arrive in completion order; the sink is never called concurrently.
+     *  An exception or error in one program, including a {@link StackOverflowError} on a deeply nested input, is
+     *  reported in its result, while an exception or error in the sink stops the run. Any other
+     *  {@link VirtualMachineError} also stops the run and is rethrown, since the JVM may no longer be usable. */
+    CorpusReport run(Stream<Block> programs, Consumer<ProgramResult> sink) {
+        var report = new CorpusReport();
+        var inFlight = new Semaphore(this.maxInFlight);
+        var failures = new AtomicInteger();
+        var analysisCount = new LongAdder();
+        var programNanos = new LongAdder();
+        var sinkFailure = new AtomicReference<Throwable>();
+        var vmFailure = new AtomicReference<VirtualMachineError>();
+        // a lock rather than synchronized, so a virtual thread blocked in the sink does not pin its carrier
+        var sinkLock = new ReentrantLock();
+
+        long start = System.nanoTime();
+        var executor = newExecutor();
+        try {
+            int index = 0;
+            var iter = programs.iterator();
+            while (sinkFailure.get() == null && vmFailure.get() == null) {
+                // take the permit first, since hasNext may already pull the next program from the stream
+                inFlight.acquireUninterruptibly();
+                if (!iter.hasNext()) {
+                    inFlight.release();
+                    break;
+                }
+                var result = new ProgramResult(index, iter.next());
+                index += 1;
+
+                executor.execute(() -> {
+                    try {
+                        try {
+                            analyze(result);
+
+                        } catch (VirtualMachineError e) {
+                            vmFailure.compareAndSet(null, e);
+                            return;
+                        }
+                        programNanos.add(result.nanos);
+                        analysisCount.add(result.solutions.size());
+                        if (result.error != null) {
+                            failures.incrementAndGet();
+                        }
+
+                        // only failures of the sink get here, since analyze catches everything else
+                        sinkLock.lock();
+                        try {
+                            if (sinkFailure.get() == null) {
+                                sink.accept(result);
+                            }
+
+                        } catch (Throwable e) {
+                            sinkFailure.set(e);
+
+                        } finally {
+                            sinkLock.unlock();
+                        }
+
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            report.programs = index;
+
+            // wait for the programs still in flight
+            inFlight.acquireUninterruptibly(this.maxInFlight);
+
+        } finally {
+            executor.shutdown();
+        }
+
+        if (vmFailure.get() != null) {
+            throw vmFailure.get();
+        }
+        if (sinkFailure.get() != null) {
+            throw new RuntimeException("corpus sink failed", sinkFailure.get());
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        report.programNanos = programNanos.sum();
+        report.failures = failures.get();
+        report.analyses = analysisCount.sum();
+        return report;
+    }
+
+    private void analyze(ProgramResult result) {
+        long start = System.nanoTime();
+        try {
+            result.cfg = this.cfgBuilder.apply(result.program);
+            for (var kv : this.analyses.entrySet()) {
+                result.solutions.put(kv.getKey(), kv.getValue().apply(result.cfg).analyze());
+            }
+
+        } catch (StackOverflowError e) {
+            result.error = e;
+
+        } catch (VirtualMachineError e) {
+            throw e;
+
+        } catch (RuntimeException | Error e) {
+            result.error = e;
+        }
+        result.nanos = System.nanoTime() - start;
+    }
+}
@@ -1,9 +1,14 @@
 package org.example;
 
-import com.google.common.collect.HashBiMap;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 enum DataFlowDirection { FORWARD, BACKWARD }
 
@@ -12,69 +17,368 @@ abstract class DataFlowAnalysis<T, L extends CompleteUpperSemiLattice<T>> implem
     L lattice;
     DataFlowDirection direction;
     ControlFlowGraph cfg;
-    HashBiMap<Integer, DataFlowVariable> blockVars;
+
+    // dataflow variable of each block, indexed by block ID (-1 for IDs of removed blocks)
+    int[] blockVars;
+
+    // block of each dataflow variable, indexed by variable
+    int[] varBlocks;
+
+    // null until the analysis is first solved
     FixpointSolver solver;
 
+    // maximum number of descending passes after solving with widening
+    static final int NARROWING_PASSES = 2;
+
+    // whether solves record statistics, available from stats() afterwards
+    boolean collectStats;
+
+    // solution of every dataflow variable from the last solve, kept up to date by reanalyze() while varSolutionCurrent
+    // is set; null until the analysis is first solved
+    private T[] varSolution;
+    private boolean varSolutionCurrent;
+
+    // order in which dataflow variables are visited, and position of each variable in it; kept across edits, which
+    // append the variables of added blocks. null until needed
+    private int[] order;
+    private int[] priority;
+
+    // facts of dataflow variables known to query() when varSolution is not current, which are final where solvedVars
+    // is set; null until needed
+    private T[] varFacts;
+    private boolean[] solvedVars;
+
     DataFlowAnalysis(L lattice, ControlFlowGraph cfg, DataFlowDirection direction) {
         this.lattice = lattice;
         this.direction = direction;
         this.cfg = cfg;
-        this.blockVars = HashBiMap.create();
-        this.solver = new FixpointSolver();
 
-        initializeSolver();
+        numberBlocks();
     }
 
     DataFlowAnalysis(L lattice, ControlFlowGraph cfg) {
         this(lattice, cfg, DataFlowDirection.FORWARD);
     }
 
-    /* create dataflow variables for CFG. */
-    private void initializeSolver() {
-        for (int blockId : this.cfg.blockMap.keySet()) {
-            var dfVar = solver.freshVariable();
-            this.blockVars.put(blockId, dfVar);
+    /* assign a dataflow variable to every block of the CFG. */
+    private void numberBlocks() {
+        this.blockVars = new int[this.cfg.curBlockId];
+        Arrays.fill(this.blockVars, -1);
+        this.varBlocks = new int[this.cfg.blockMap.size()];
+
+        // variables are numbered in increasing order of block IDs
+        int[] blockIds = this.cfg.blockMap.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int dfVar = 0; dfVar < blockIds.length; dfVar++) {
+            this.blockVars[blockIds[dfVar]] = dfVar;
+            this.varBlocks[dfVar] = blockIds[dfVar];
+        }
+    }
+
+    /** return the solver for the CFG's equations, creating it on first use.
+     *  Analyses that are only solved as part of a {@link FusedAnalysis} never create one. */
+    FixpointSolver solver() {
+        if (this.solver != null) {
+            this.solver.collectStats = this.collectStats;
+            return this.solver;
+        }
+
+        this.solver = new FixpointSolver();
+        this.solver.collectStats = this.collectStats;
+        for (int dfVar = 0; dfVar < this.varBlocks.length; dfVar++) {
+            this.solver.freshVariable();
         }
 
         // add dependency information between dataflow variables
         for (Map.Entry<Integer, BasicBlock> kv: this.cfg.blockMap.entrySet()) {
-            var blockDfVar = this.blockVars.get(kv.getKey());
+            int blockDfVar = this.blockVars[kv.getKey()];
 
             for (int target : kv.getValue().jump.possibleTargets()) {
-                var targetDfVar = this.blockVars.get(target);
+                int targetDfVar = this.blockVars[target];
                 switch (this.direction) {
                     case FORWARD -> this.solver.addDependency(blockDfVar, targetDfVar);
                     case BACKWARD -> this.solver.addDependency(targetDfVar, blockDfVar);
                 }
             }
         }
+
+        return this.solver;
     }
 
     /** Compute dataflow analysis. */
     HashMap<Integer, T> analyze() {
-        // for (Map.Entry<Integer,DataFlowVariable> kv : this.blockVars.entrySet()) {
-        //     System.out.printf("block %d => %s\n", kv.getKey(), kv.getValue());
-        // }
+        return analyze(SolverStrategy.REVERSE_POSTORDER);
+    }
+
+    /** Compute dataflow analysis, visiting dataflow variables in the order given by {@param strategy}. */
+    HashMap<Integer, T> analyze(SolverStrategy strategy) {
+        prepare();
+        var solver = solver();
+        var order = order();
+
+        // lattices with infinite ascending chains are always solved with widening
+        if (this.lattice instanceof WideningLattice<?>) {
+            @SuppressWarnings("unchecked")
+            var widening = (WideningLattice<T>) this.lattice;
+            return blockSolution(solver.solveWidening(widening, this, order, NARROWING_PASSES));
+        }
+
+        var varSolution = switch (strategy) {
+            case FIFO -> solver.solve(this.lattice, this);
+            case REVERSE_POSTORDER -> solver.solve(this.lattice, this, order);
+            case WEAK_TOPOLOGICAL -> solver.solveWeakTopological(this.lattice, this, order);
+            case PARALLEL -> solver.solveParallel(this.lattice, this, order, ForkJoinPool.commonPool());
+        };
+
+        return blockSolution(varSolution);
+    }
+
+    /** Compute dataflow analysis with the parallel solver, running on {@param pool}. Lattices with widening are
+     *  solved sequentially, as by {@link #analyze(SolverStrategy)}, since widening depends on the order of evaluation. */
+    HashMap<Integer, T> analyzeParallel(ForkJoinPool pool) {
+        if (this.lattice instanceof WideningLattice<?>) {
+            return analyze();
+        }
+
+        prepare();
+        return blockSolution(solver().solveParallel(this.lattice, this, order(), pool));
+    }
+
+    /** Return the fact of block {@param blockId}, solving only the blocks it depends on, directly or transitively,
+     *  that earlier queries or solves of this analysis have not solved yet. The fact is the one {@link #analyze()}
+     *  computes, except for lattices with widening, where it is a sound approximation that may differ from it since
+     *  the blocks are visited in a different order. */
+    T query(int blockId) {
+        if (blockId < 0 || blockId >= this.blockVars.length || this.blockVars[blockId] < 0) {
+            throw new RuntimeException(String.format("no block %d", blockId));
+        }
+
+        int dfVar = this.blockVars[blockId];
+        if (this.varSolutionCurrent) {
+            return this.varSolution[dfVar];
+        }
+        if (this.varFacts == null) {
+            prepareQuery();
+            @SuppressWarnings("unchecked")
+            var facts = (T[]) new Object[this.varBlocks.length];
+            this.varFacts = facts;
+            this.solvedVars = new boolean[this.varBlocks.length];
+        }
+        if (this.solvedVars[dfVar]) {
+            return this.varFacts[dfVar];
+        }
+
+        var solver = solver();
+        if (this.lattice instanceof WideningLattice<?>) {
+            @SuppressWarnings("unchecked")
+            var widening = (WideningLattice<T>) this.lattice;
+            solver.solveSliceWidening(widening, this, this.varFacts, this.solvedVars, dfVar, NARROWING_PASSES);
+
+        } else {
+            solver.solveSlice(this.lattice, this, this.varFacts, this.solvedVars, dfVar);
+        }
+
+        return this.varFacts[dfVar];
+    }
+
+    /** return the statistics of the last solve, or null if it did not collect any (see {@link #collectStats}). */
+    SolverStats stats() {
+        return this.solver == null ? null : this.solver.stats;
+    }
+
+    /** return the number of evaluations of each block in the last solve, or null if it did not collect statistics. */
+    HashMap<Integer, Integer> blockVisits() {
+        var stats = stats();
+        return stats == null ? null : stats.blockVisits(this.varBlocks);
+    }
+
+    /** convert {@param varSolution} of every dataflow variable to a solution by block, and keep it for query() and
+     *  reanalyze(). */
+    private HashMap<Integer, T> blockSolution(T[] varSolution) {
+        this.varSolution = varSolution;
+        this.varSolutionCurrent = true;
+        this.varFacts = null;
+        this.solvedVars = null;
 
-        var varSolution = this.solver.solve(this.lattice, this);
         var solution = new HashMap<Integer, T>();
-        for (Map.Entry<DataFlowVariable, T> kv : varSolution.entrySet()) {
-            solution.put(this.blockVars.inverse().get(kv.getKey()), kv.getValue());
+        for (int dfVar = 0; dfVar < varSolution.length; dfVar++) {
+            solution.put(this.varBlocks[dfVar], varSolution[dfVar]);
         }
 
         return solution;
     }
 
-    @Override
-    public T transfer(DataFlowVariable dfVar, T input) {
-        var block = this.cfg.blockMap.get(this.blockVars.inverse().get(dfVar));
+    /** Update the analysis for {@param edits} made to the CFG since it was last solved. Variables of added blocks are
+     *  appended, and the dependencies of the solver are updated in place.
+     *  Return false if the analysis cannot be reused (see {@link #refresh}) and must be created anew. */
+    boolean applyEdits(List<CfgEdit> edits) {
+        this.varSolutionCurrent = false;
+        this.varFacts = null;
+        this.solvedVars = null;
 
-        if (this.direction == DataFlowDirection.FORWARD && block.id == this.cfg.entryBlock) {
-            assert(block.statements.size() == 0);
-            return initial();
+        var changed = new HashSet<Integer>();
+        var added = new ArrayList<Integer>();
+        for (CfgEdit edit : edits) {
+            if (edit.kind != CfgEdit.Kind.JUMP_RETARGETED) {
+                changed.add(edit.blockId);
+            }
+            if (edit.kind == CfgEdit.Kind.BLOCK_ADDED) {
+                added.add(edit.blockId);
+            }
+        }
+
+        // blocks are only ever added with larger IDs, so existing blocks keep their dataflow variables
+        if (!added.isEmpty()) {
+            numberAddedBlocks(added);
+        }
+        if (this.solver != null) {
+            for (CfgEdit edit : edits) {
+                if (edit.kind != CfgEdit.Kind.STATEMENT_REPLACED) {
+                    updateDependencies(edit);
+                }
+            }
+        }
+
+        return refresh(changed);
+    }
+
+    /** assign dataflow variables to the blocks in {@param added}, in increasing order of IDs, after the existing ones. */
+    private void numberAddedBlocks(List<Integer> added) {
+        int numVars = this.varBlocks.length;
+        int numBlockIds = this.blockVars.length;
+        int[] blockIds = added.stream().mapToInt(Integer::intValue).sorted().toArray();
+        this.blockVars = Arrays.copyOf(this.blockVars, this.cfg.curBlockId);
+        Arrays.fill(this.blockVars, numBlockIds, this.blockVars.length, -1);
+        this.varBlocks = Arrays.copyOf(this.varBlocks, numVars + blockIds.length);
+        for (int i = 0; i < blockIds.length; i++) {
+            this.blockVars[blockIds[i]] = numVars + i;
+            this.varBlocks[numVars + i] = blockIds[i];
+            if (this.solver != null) {
+                this.solver.freshVariable();
+            }
+        }
+
+        if (this.order != null) {
+            this.order = Arrays.copyOf(this.order, this.varBlocks.length);
+            for (int dfVar = numVars; dfVar < this.varBlocks.length; dfVar++) {
+                this.order[dfVar] = dfVar;
+            }
+            this.priority = null;
+        }
+    }
+
+    /** replace the dependencies of the jump of the block of {@param edit} before the edit by those after it. */
+    private void updateDependencies(CfgEdit edit) {
+        int blockDfVar = this.blockVars[edit.blockId];
+        for (int target : edit.oldTargets) {
+            switch (this.direction) {
+                case FORWARD -> this.solver.removeDependency(blockDfVar, this.blockVars[target]);
+                case BACKWARD -> this.solver.removeDependency(this.blockVars[target], blockDfVar);
+            }
+        }
+        for (int target : edit.newTargets) {
+            switch (this.direction) {
+                case FORWARD -> this.solver.addDependency(blockDfVar, this.blockVars[target]);
+                case BACKWARD -> this.solver.addDependency(this.blockVars[target], blockDfVar);
+            }
+        }
+    }
+
+    /** Hook called by {@link #applyEdits} with the blocks whose statements were replaced or that were added.
+     *  Return false if the change invalidates information shared by all blocks, such as the universe of the
+     *  lattice. By default, returns true. */
+    boolean refresh(Set<Integer> changedBlocks) {
+        return true;
+    }
+
+    /** Re-solve the analysis after {@param edits} were applied with {@link #applyEdits}, reusing the solution of the
+     *  last solve outside of the region downstream of the edited blocks. {@param previous}, the solution by block
+     *  it returned, is updated in place and returned. Apart from the adjacency arrays of the solver, which are rebuilt
+     *  after edits that add blocks or retarget jumps, the cost only depends on the size of the region. Lattices with
+     *  widening widen and narrow the region; since its inputs are final from the start, the result is a post-fixpoint
+     *  that may be more precise than, or differ from, that of a fresh solve. */
+    @SuppressWarnings("unchecked")
+    HashMap<Integer, T> reanalyze(HashMap<Integer, T> previous, List<CfgEdit> edits) {
+        prepare();
+        var solver = solver();
+
+        int numVars = this.varBlocks.length;
+        if (this.varSolution == null) {
+            // solved by other means, such as a FusedAnalysis
+            this.varSolution = (T[]) new Object[numVars];
+            for (int dfVar = 0; dfVar < numVars; dfVar++) {
+                this.varSolution[dfVar] = previous.get(this.varBlocks[dfVar]);
+            }
+
+        } else if (this.varSolution.length < numVars) {
+            this.varSolution = Arrays.copyOf(this.varSolution, numVars);
+        }
+
+        var order = order();
+        if (this.priority == null) {
+            this.priority = FixpointSolver.priorities(order);
+        }
+
+        var changed = new HashSet<Integer>();
+        for (CfgEdit edit : edits) {
+            for (int blockId : edit.affectedBlocks()) {
+                changed.add(this.blockVars[blockId]);
+            }
         }
 
-        if (this.direction == DataFlowDirection.BACKWARD && block.id == this.cfg.exitBlock) {
+        int[] changedVars = changed.stream().mapToInt(Integer::intValue).toArray();
+        int[] region;
+        if (this.lattice instanceof WideningLattice<?>) {
+            var widening = (WideningLattice<T>) this.lattice;
+            region = solver.resolveWidening(widening, this, order, this.priority, this.varSolution, changedVars, NARROWING_PASSES);
+
+        } else {
+            region = solver.resolve(this.lattice, this, order, this.priority, this.varSolution, changedVars);
+        }
+        for (int dfVar : region) {
+            previous.put(this.varBlocks[dfVar], this.varSolution[dfVar]);
+        }
+
+        this.varSolutionCurrent = true;
+        return previous;
+    }
+
+    /** return the variables of the statements of the blocks in {@param blockIds}. */
+    Set<String> statementVariables(Set<Integer> blockIds) {
+        var res = new HashSet<String>();
+        var visitor = new StatementVariables();
+        for (int blockId : blockIds) {
+            for (AtomicStatement statement : this.cfg.blockMap.get(blockId).statements) {
+                res.addAll(statement.accept(visitor));
+            }
+        }
+        return res;
+    }
+
+    /** return the order in which dataflow variables are visited, computing it on first use. */
+    private int[] order() {
+        if (this.order == null) {
+            this.order = variableOrder();
+            this.priority = null;
+        }
+        return this.order;
+    }
+
+    /** Dataflow variables in reverse postorder of the CFG (forward analysis) or of the reversed CFG
+     *  (backward analysis), so that a variable is visited after the variables it depends on. */
+    private int[] variableOrder() {
+        List<Integer> blockOrder = switch (this.direction) {
+            case FORWARD -> this.cfg.reversePostorder();
+            case BACKWARD -> this.cfg.reverseGraphReversePostorder();
+        };
+
+        return blockOrder.stream().mapToInt(blockId -> this.blockVars[blockId]).toArray();
+    }
+
+    @Override
+    public T transfer(int dfVar, T input) {
+        var block = this.cfg.blockMap.get(this.varBlocks[dfVar]);
+
+        if (isBoundary(block.id)) {
             assert(block.statements.size() == 0);
             return initial();
         }
@@ -82,42 +386,118 @@ abstract class DataFlowAnalysis<T, L extends CompleteUpperSemiLattice<T>> implem
         return transfer(block, input);
     }
 
+    /** whether {@param blockId} is the entry (resp. exit) block of a forward (resp. backward) analysis,
+     *  whose fact is {@link #initial()}. */
+    boolean isBoundary(int blockId) {
+        return switch (this.direction) {
+            case FORWARD -> blockId == this.cfg.entryBlock;
+            case BACKWARD -> blockId == this.cfg.exitBlock;
+        };
+    }
+
+    /** Hook for precomputing per-block information before solving. By default, does nothing. */
+    void prepare() {}
+
+    /** Hook called instead of {@link #prepare()} before {@link #query}, for analyses that can compute per-block
+     *  information on demand instead. By default, calls prepare(). */
+    void prepareQuery() {
+        prepare();
+    }
+
     /** Value for the entry (resp. exist) block for a forward (resp. backward) analysis.
      *  By default, this is lattice.bottom(). */
     T initial() {
         return this.lattice.bottom();
     }
 
-    abstract T transfer(BasicBlock block, T input);
-}
+    /** Transfer function for a block: composes the transfer functions of its statements and guard
+     *  in the direction of the analysis. */
+    T transfer(BasicBlock block, T input) {
+        T cur = input;
+        var guard = block.jump instanceof ConditionalJump jump ? jump.guard : null;
 
-abstract class BasicDataFlowAnalysis<T, L extends CompleteUpperSemiLattice<T>> extends DataFlowAnalysis<T, L> {
-    BasicDataFlowAnalysis(L lattice, ControlFlowGraph cfg, DataFlowDirection direction) {
-        super(lattice, cfg, direction);
+        if (this.direction == DataFlowDirection.FORWARD) {
+            for (AtomicStatement statement : block.statements) {
+                cur = transfer(block, statement, cur);
+            }
+
+            if (guard != null) {
+                cur = transfer(guard, cur);
+            }
+
+        } else {
+            if (guard != null) {
+                cur = transfer(guard, cur);
+            }
+
+            var iter = block.statements.descendingIterator();
+            while (iter.hasNext()) {
+                cur = transfer(block, iter.next(), cur);
+            }
+        }
+
+        return cur;
     }
 
-    T transfer(BasicBlock block, T input) {
-        // assume that CFG blocks are atomic (contains either 0 or 1 statements)
-        if (block.statements.size() == 0) {
-            // if there is a conditional jump, apply transfer function of the guard
-            if (block.jump instanceof ConditionalJump) {
-                return transfer(((ConditionalJump)block.jump).guard, input);
+    /** Transfer function for {@param statement} in {@param block}. */
+    abstract T transfer(BasicBlock block, AtomicStatement statement, T input);
+
+    /** Transfer function for a conditional / loop guard. */
+    abstract T transfer(Expression guard, T input);
+
+    /** Recover the facts at the program points inside block {@param blockId} from a {@param solution} computed by
+     *  {@link #analyze()}. Element i is the fact just before the block's i-th statement and the last element is the
+     *  fact just after its last statement (before the guard, if any), regardless of the direction of the analysis. */
+    List<T> statementFacts(HashMap<Integer, T> solution, int blockId) {
+        var block = this.cfg.blockMap.get(blockId);
+        int dfVar = this.blockVars[blockId];
+
+        T input;
+        if (isBoundary(blockId)) {
+            input = initial();
 
-            } else {
-                return input;
+        } else {
+            var solver = solver();
+            solver.buildAdjacency();
+            input = this.lattice.startJoin();
+            for (int i = solver.parentOffsets[dfVar]; i < solver.parentOffsets[dfVar + 1]; i++) {
+                input = this.lattice.joinInto(input, solution.get(this.varBlocks[solver.parentSources[i]]));
             }
+            input = this.lattice.finishJoin(input);
+        }
 
-        } else if (block.statements.size() == 1) {
-            return transfer(block.statements.element(), input);
+        var facts = new ArrayList<T>();
+        if (this.direction == DataFlowDirection.FORWARD) {
+            facts.add(input);
+            for (AtomicStatement statement : block.statements) {
+                facts.add(transfer(block, statement, facts.get(facts.size() - 1)));
+            }
 
         } else {
-            throw new RuntimeException("CFG used in dataflow analysis must be atomic");
+            T cur = block.jump instanceof ConditionalJump jump ? transfer(jump.guard, input) : input;
+            facts.add(cur);
+            var iter = block.statements.descendingIterator();
+            while (iter.hasNext()) {
+                cur = transfer(block, iter.next(), cur);
+                facts.add(cur);
+            }
+            Collections.reverse(facts);
         }
+
+        return facts;
+    }
+}
+
+abstract class BasicDataFlowAnalysis<T, L extends CompleteUpperSemiLattice<T>> extends DataFlowAnalysis<T, L> {
+    BasicDataFlowAnalysis(L lattice, ControlFlowGraph cfg, DataFlowDirection direction) {
+        super(lattice, cfg, direction);
+    }
+
+    @Override
+    T transfer(BasicBlock block, AtomicStatement statement, T input) {
+        return transfer(statement, input);
     }
 
     /** Transfer function for a statement. */
     abstract T transfer(AtomicStatement statement, T input);
-
-    /** Transfer function for a conditional / loop guard. */
-    abstract T transfer(Expression guard, T input);
-}
\ No newline at end of file
+}
@@ -0,0 +1,200 @@
+package org.example;
+
+import java.util.*;
+
+/** Store mapping a fixed, numbered set of variables to constants of an enum, kept as a byte array of ordinals.
+ *  Stores handed out by {@link EnumStoreLattice} are never modified. */
+class EnumStore<E extends Enum<E>> extends AbstractMap<String, E> {
+    final ElementIndex<String> variables;
+    final E[] constants;
+    final byte[] values;
+
+    EnumStore(ElementIndex<String> variables, E[] constants, byte[] values) {
+        this.variables = variables;
+        this.constants = constants;
+        this.values = values;
+    }
+
+    EnumStore<E> copy() {
+        return new EnumStore<>(this.variables, this.constants, this.values.clone());
+    }
+
+    @Override
+    public E get(Object var) {
+        int i = this.variables.find(var);
+        return i < 0 ? null : this.constants[this.values[i]];
+    }
+
+    @Override
+    public boolean containsKey(Object var) {
+        return this.variables.find(var) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.values.length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, E>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, E>> iterator() {
+                return new Iterator<>() {
+                    int cur = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.cur < values.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, E> next() {
+                        if (this.cur >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+
+                        var entry = new AbstractMap.SimpleImmutableEntry<>(variables.get(this.cur), constants[values[this.cur]]);
+                        this.cur += 1;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof EnumStore<?> otherStore && otherStore.variables == this.variables) {
+            return Arrays.equals(this.values, otherStore.values);
+
+        } else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
+
+/** lattice of stores mapping variables to elements of a finite lattice whose elements are the constants of an enum.
+ *  The binary join of the element lattice is tabulated once, so joining two stores is a loop over their ordinals. */
+class EnumStoreLattice<E extends Enum<E>, L extends CompleteUpperSemiLattice<E>> implements CompleteUpperSemiLattice<Map<String, E>> {
+    L lattice;
+    ElementIndex<String> variables;
+    E[] constants;
+
+    // joinTable[a * constants.length + b] is the ordinal of the join of the constants with ordinals a and b
+    private final byte[] joinTable;
+
+    // stores are never modified, so every bottom store can be the same one
+    private final EnumStore<E> bottom;
+
+    EnumStoreLattice(L lattice, Class<E> type, Set<String> variables) {
+        this.lattice = lattice;
+        this.variables = new ElementIndex<>(new TreeSet<>(variables));
+        this.constants = type.getEnumConstants();
+        if (this.constants.length > Byte.MAX_VALUE) {
+            throw new RuntimeException(String.format("too many constants in %s", type.getSimpleName()));
+        }
+
+        int n = this.constants.length;
+        this.joinTable = new byte[n * n];
+        for (E a : this.constants) {
+            for (E b : this.constants) {
+                this.joinTable[a.ordinal() * n + b.ordinal()] = (byte) lattice.join(a, b).ordinal();
+            }
+        }
+
+        var values = new byte[this.variables.size()];
+        Arrays.fill(values, (byte) lattice.bottom().ordinal());
+        this.bottom = new EnumStore<>(this.variables, this.constants, values);
+    }
+
+    @Override
+    public Map<String, E> join(Set<Map<String, E>> elements) {
+        var res = startJoin();
+        for (var element : elements) {
+            res = joinInto(res, element);
+        }
+        return finishJoin(res);
+    }
+
+    /** whether every variable of {@param vars} has a place in the stores of this lattice. */
+    boolean hasVariables(Set<String> vars) {
+        for (String var : vars) {
+            if (this.variables.find(var) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** join of two elements of the element lattice, by table lookup. */
+    E join(E element1, E element2) {
+        return this.constants[this.joinTable[element1.ordinal() * this.constants.length + element2.ordinal()]];
+    }
+
+    @Override
+    public Map<String, E> bottom() {
+        return this.bottom;
+    }
+
+    /** return a store that maps {@param var} to {@param value} and is otherwise the same as {@param store}. */
+    Map<String, E> update(Map<String, E> store, String var, E value) {
+        var res = dense(store).copy();
+        res.values[this.variables.indexOf(var)] = (byte) value.ordinal();
+        return res;
+    }
+
+    /** the accumulator is null until the first store is joined. */
+    @Override
+    public Map<String, E> startJoin() {
+        return null;
+    }
+
+    @Override
+    public Map<String, E> joinInto(Map<String, E> accumulator, Map<String, E> element) {
+        var store = dense(element);
+        if (accumulator == null) {
+            return store.copy();
+        }
+
+        byte[] acc = ((EnumStore<E>) accumulator).values;
+        byte[] values = store.values;
+        int n = this.constants.length;
+        for (int i = 0; i < acc.length; i++) {
+            acc[i] = this.joinTable[acc[i] * n + values[i]];
+        }
+        return accumulator;
+    }
+
+    @Override
+    public Map<String, E> finishJoin(Map<String, E> accumulator) {
+        return accumulator == null ? this.bottom : accumulator;
+    }
+
+    /** return {@param element} as a store over this lattice's variables, checking that it maps every variable. */
+    private EnumStore<E> dense(Map<String, E> element) {
+        if (element instanceof EnumStore<E> store && store.variables == this.variables) {
+            return store;
+        }
+
+        var values = new byte[this.variables.size()];
+        for (int i = 0; i < values.length; i++) {
+            E value = element.get(this.variables.get(i));
+            if (value == null) {
+                throw new RuntimeException(String.format("store element missing variable %s", this.variables.get(i)));
+            }
+            values[i] = (byte) value.ordinal();
+        }
+        return new EnumStore<>(this.variables, this.constants, values);
+    }
+}
@@ -3,13 +3,36 @@ package org.example;
 import java.util.Objects;
 
 abstract class Expression {
+    // expressions are immutable, so the hash code is computed once at construction
+    final int hash;
+
+    // salts of the hash codes of nodes that are not literals or variables. They are constants, unlike the identity
+    // hash codes of classes, so that iterating over hash sets of expressions gives the same order in every run
+    static final int INPUT_SALT = 0x1b873593;
+    static final int ADD_SALT = 0x2c1b3c6d;
+    static final int MULTIPLY_SALT = 0x297a2d39;
+
+    // dense ID assigned by an ExpressionInterner if this is the canonical node for its structure, or -1
+    int id;
+
+    Expression(int hash) {
+        this.hash = hash;
+        this.id = -1;
+    }
+
     abstract <T> T accept(ExpressionVisitor<T> visitor);
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
 }
 
 class Literal extends Expression {
-    int val;
+    final int val;
 
     Literal(int val) {
+        super(Objects.hash(val));
         this.val = val;
     }
 
@@ -40,14 +63,13 @@ class Literal extends Expression {
             return false;
         }
     }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.val);
-    }
 }
 
 class Input extends Expression {
+    Input() {
+        super(INPUT_SALT);
+    }
+
     @Override
     <T> T accept(ExpressionVisitor<T> visitor) {
         return visitor.visit(this);
@@ -70,9 +92,10 @@ class Input extends Expression {
 }
 
 class Var extends Expression {
-    String name;
+    final String name;
 
     Var(String name) {
+        super(Objects.hash(name));
         this.name = name;
     }
 
@@ -97,24 +120,20 @@ class Var extends Expression {
         }
 
         if (other instanceof Var otherVar) {
-            return Objects.equals(this.name, otherVar.name);
+            return this.hash == otherVar.hash && Objects.equals(this.name, otherVar.name);
 
         } else {
             return false;
         }
     }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.name);
-    }
 }
 
 class Add extends Expression {
-    Expression lhs;
-    Expression rhs;
+    final Expression lhs;
+    final Expression rhs;
 
     Add(Expression lhs, Expression rhs) {
+        super(Objects.hash(ADD_SALT, lhs, rhs));
         this.lhs = lhs;
         this.rhs = rhs;
     }
@@ -140,24 +159,22 @@ class Add extends Expression {
         }
 
         if (other instanceof Add otherAdd) {
-            return Objects.equals(this.lhs, otherAdd.lhs) && Objects.equals(this.rhs, otherAdd.rhs);
+            return this.hash == otherAdd.hash
+                && Objects.equals(this.lhs, otherAdd.lhs)
+                && Objects.equals(this.rhs, otherAdd.rhs);
 
         } else {
             return false;
         }
     }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.lhs, this.rhs);
-    }
 }
 
 class Multiply extends Expression {
-    Expression lhs;
-    Expression rhs;
+    final Expression lhs;
+    final Expression rhs;
 
     Multiply(Expression lhs, Expression rhs) {
+        super(Objects.hash(MULTIPLY_SALT, lhs, rhs));
         this.lhs = lhs;
         this.rhs = rhs;
     }
@@ -183,15 +200,12 @@ class Multiply extends Expression {
         }
 
         if (other instanceof Multiply otherMul) {
-            return Objects.equals(this.lhs, otherMul.lhs) && Objects.equals(this.rhs, otherMul.rhs);
+            return this.hash == otherMul.hash
+                && Objects.equals(this.lhs, otherMul.lhs)
+                && Objects.equals(this.rhs, otherMul.rhs);
 
         } else {
             return false;
         }
     }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.lhs, this.rhs);
-    }
 }
@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/** Hash-conses expressions: structurally equal expressions interned by the same interner are the same object.
+ *  Canonical nodes are numbered densely in the order they are created. */
+class ExpressionInterner implements ValueExpressionVisitor<Expression> {
+    private final HashMap<Expression, Expression> table;
+    private final ArrayList<Expression> nodes;
+
+    ExpressionInterner() {
+        this.table = new HashMap<>();
+        this.nodes = new ArrayList<>();
+    }
+
+    /** return the canonical node structurally equal to {@param expr}. */
+    Expression intern(Expression expr) {
+        if (isCanonical(expr)) {
+            return expr;
+        }
+
+        return expr.accept(this);
+    }
+
+    /** return the canonical node with ID {@param id}. */
+    Expression get(int id) {
+        return this.nodes.get(id);
+    }
+
+    /** return the number of canonical nodes, which is one more than the largest ID. */
+    int size() {
+        return this.nodes.size();
+    }
+
+    private boolean isCanonical(Expression expr) {
+        return expr.id >= 0 && expr.id < this.nodes.size() && this.nodes.get(expr.id) == expr;
+    }
+
+    /** children of {@param expr} must already be canonical, so the lookup compares them by identity. */
+    private Expression canonical(Expression expr) {
+        var existing = this.table.get(expr);
+        if (existing != null) {
+            return existing;
+        }
+
+        expr.id = this.nodes.size();
+        this.nodes.add(expr);
+        this.table.put(expr, expr);
+        return expr;
+    }
+
+    @Override
+    public Expression visitInput() {
+        return canonical(new Input());
+    }
+
+    @Override
+    public Expression visitLiteral(int value) {
+        return canonical(new Literal(value));
+    }
+
+    @Override
+    public Expression visitVar(String name) {
+        return canonical(new Var(name));
+    }
+
+    @Override
+    public Expression visitAdd(Expression lhs, Expression rhs) {
+        return canonical(new Add(lhs, rhs));
+    }
+
+    @Override
+    public Expression visitMultiply(Expression lhs, Expression rhs) {
+        return canonical(new Multiply(lhs, rhs));
+    }
+}
@@ -1,117 +1,920 @@
 package org.example;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
 
 /** Transfer function for dataflow variables. */
 interface TransferFunction<T> {
-    T transfer(DataFlowVariable var, T input);
+    T transfer(int var, T input);
 }
 
-/** Indeterminate value used to express lattice equations. */
-class DataFlowVariable {
-    private final int id;
+/** Order in which the solver visits pending dataflow variables. */
+enum SolverStrategy {
+    /** first-in first-out worklist; variables may be pending more than once. */
+    FIFO,
 
-    DataFlowVariable(int id) {
-        this.id = id;
+    /** priority worklist ordered by reverse postorder; each variable is pending at most once. */
+    REVERSE_POSTORDER,
+
+    /** recursive iteration strategy over a weak topological ordering; inner components are stabilized
+     *  before their enclosing component continues. */
+    WEAK_TOPOLOGICAL,
+
+    /** strongly connected components of the dependency graph are solved in parallel in topological order of the
+     *  condensation DAG, each with a reverse postorder worklist. */
+    PARALLEL
+}
+
+/** Growable FIFO queue of ints backed by a ring buffer. */
+class IntQueue {
+    private int[] elements;
+    private int head;
+    private int size;
+
+    IntQueue(int capacity) {
+        this.elements = new int[Math.max(capacity, 4)];
     }
 
-    @Override
-    public boolean equals(Object other) {
-        if (this == other) {
-            return true;
-        }
+    boolean isEmpty() {
+        return this.size == 0;
+    }
 
-        if (other == null) {
-            return false;
-        }
+    int size() {
+        return this.size;
+    }
 
-        if (getClass() != other.getClass()) {
-            return false;
+    void addLast(int element) {
+        if (this.size == this.elements.length) {
+            var grown = new int[this.elements.length * 2];
+            for (int i = 0; i < this.size; i++) {
+                grown[i] = this.elements[(this.head + i) % this.elements.length];
+            }
+            this.elements = grown;
+            this.head = 0;
         }
 
-        DataFlowVariable tother = (DataFlowVariable)other;
-        return this.id == tother.id;
+        this.elements[(this.head + this.size) % this.elements.length] = element;
+        this.size += 1;
+    }
+
+    int removeFirst() {
+        int element = this.elements[this.head];
+        this.head = (this.head + 1) % this.elements.length;
+        this.size -= 1;
+        return element;
+    }
+}
+
+/** Binary min-heap of ints with a fixed capacity. */
+class IntHeap {
+    private final int[] elements;
+    private int size;
+
+    IntHeap(int capacity) {
+        this.elements = new int[capacity];
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.id);
+    void add(int element) {
+        int i = this.size;
+        this.size += 1;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (this.elements[parent] <= element) {
+                break;
+            }
+            this.elements[i] = this.elements[parent];
+            i = parent;
+        }
+        this.elements[i] = element;
     }
 
-    @Override
-    public String toString() {
-        return String.format("var(%d)", this.id);
+    int removeMin() {
+        int min = this.elements[0];
+        this.size -= 1;
+        int last = this.elements[this.size];
+
+        int i = 0;
+        while (2 * i + 1 < this.size) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.size && this.elements[child + 1] < this.elements[child]) {
+                child += 1;
+            }
+            if (last <= this.elements[child]) {
+                break;
+            }
+            this.elements[i] = this.elements[child];
+            i = child;
+        }
+        this.elements[i] = last;
+
+        return min;
     }
 }
 
-/** Computes fixed points of lattice equations. */
+/** Computes fixed points of lattice equations.
+ *  Variables are dense ints; dependencies are compacted into CSR (compressed sparse row) arrays
+ *  the first time the system is solved. */
 class FixpointSolver {
-    int nextVariableId;
+    int numVariables;
+
+    // dependencies added since the adjacency arrays were last built
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int numEdges;
+
+    // children of variable v are childTargets[childOffsets[v] .. childOffsets[v+1]-1]
+    int[] childOffsets;
+    int[] childTargets;
 
-    // maps variables to dependencies
-    HashMap<DataFlowVariable, HashSet<DataFlowVariable>> children;
+    // parents of variable v (variables on which v depends) are parentSources[parentOffsets[v] .. parentOffsets[v+1]-1]
+    int[] parentOffsets;
+    int[] parentSources;
 
-    // maps variables to variable to which it depends
-    HashMap<DataFlowVariable, HashSet<DataFlowVariable>> parents;
+    // number of variable evaluations performed by the last call to solve
+    int iterations;
+
+    // ordering used by the last weak topological solve, with per-component iteration counts
+    WeakTopologicalOrder wto;
+
+    // strongly connected components used by the last parallel solve
+    StronglyConnectedComponents components;
+
+    // variables whose values were widened by the last widening solve, indexed by variable
+    boolean[] wideningPoints;
+
+    // whether solves record statistics; if not, stats is null
+    boolean collectStats;
+    SolverStats stats;
+
+    // position of each variable in the slice being solved by solveSlice, or -1; reset after each slice so that the
+    // cost of a slice does not depend on the number of variables
+    private int[] slicePositions;
+    private boolean[] sliceWideningPoints;
+
+    // variables in the region being re-solved by resolve, and pending priorities; all false between calls, for the
+    // same reason
+    private boolean[] regionMarks;
+    private boolean[] regionPending;
 
     FixpointSolver() {
-        this.nextVariableId = 1;
-        this.children = new HashMap<>();
-        this.parents = new HashMap<>();
+        this.numVariables = 0;
+        this.edgeFrom = new int[16];
+        this.edgeTo = new int[16];
+        this.numEdges = 0;
     }
 
     /** create and return a fresh dataflow variable. */
-    DataFlowVariable freshVariable() {
-        var dfVar = new DataFlowVariable(this.nextVariableId);
-        this.children.put(dfVar, new HashSet<>());
-        this.parents.put(dfVar, new HashSet<>());
-
-        this.nextVariableId += 1;
-        return dfVar;
+    int freshVariable() {
+        int var = this.numVariables;
+        this.numVariables += 1;
+        this.childOffsets = null;
+        return var;
     }
 
     /** add a dependency from {@param fromVar} to {@param toVar}. */
-    void addDependency(DataFlowVariable fromVar, DataFlowVariable toVar) {
-        assert(this.children.containsKey(fromVar) && this.parents.containsKey(toVar));
+    void addDependency(int fromVar, int toVar) {
+        assert(fromVar < this.numVariables && toVar < this.numVariables);
+
+        if (this.numEdges == this.edgeFrom.length) {
+            this.edgeFrom = Arrays.copyOf(this.edgeFrom, this.numEdges * 2);
+            this.edgeTo = Arrays.copyOf(this.edgeTo, this.numEdges * 2);
+        }
+
+        this.edgeFrom[this.numEdges] = fromVar;
+        this.edgeTo[this.numEdges] = toVar;
+        this.numEdges += 1;
+        this.childOffsets = null;
+    }
+
+    /** remove one dependency from {@param fromVar} to {@param toVar}, which must have been added. */
+    void removeDependency(int fromVar, int toVar) {
+        for (int i = this.numEdges - 1; i >= 0; i--) {
+            if (this.edgeFrom[i] == fromVar && this.edgeTo[i] == toVar) {
+                this.numEdges -= 1;
+                this.edgeFrom[i] = this.edgeFrom[this.numEdges];
+                this.edgeTo[i] = this.edgeTo[this.numEdges];
+                this.childOffsets = null;
+                return;
+            }
+        }
+
+        throw new RuntimeException(String.format("no dependency from %d to %d", fromVar, toVar));
+    }
+
+    /** build CSR adjacency arrays from the dependency list, if it changed since they were last built. */
+    void buildAdjacency() {
+        if (this.childOffsets != null) {
+            return;
+        }
+
+        this.childOffsets = new int[this.numVariables + 1];
+        this.parentOffsets = new int[this.numVariables + 1];
+        for (int i = 0; i < this.numEdges; i++) {
+            this.childOffsets[this.edgeFrom[i] + 1] += 1;
+            this.parentOffsets[this.edgeTo[i] + 1] += 1;
+        }
+
+        for (int v = 0; v < this.numVariables; v++) {
+            this.childOffsets[v + 1] += this.childOffsets[v];
+            this.parentOffsets[v + 1] += this.parentOffsets[v];
+        }
+
+        this.childTargets = new int[this.numEdges];
+        this.parentSources = new int[this.numEdges];
+        int[] childFill = Arrays.copyOf(this.childOffsets, this.numVariables);
+        int[] parentFill = Arrays.copyOf(this.parentOffsets, this.numVariables);
+        for (int i = 0; i < this.numEdges; i++) {
+            this.childTargets[childFill[this.edgeFrom[i]]++] = this.edgeTo[i];
+            this.parentSources[parentFill[this.edgeTo[i]]++] = this.edgeFrom[i];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, L extends CompleteUpperSemiLattice<T>> T[] initialSolution(L lattice) {
+        T[] solution = (T[]) new Object[this.numVariables];
+        for (int v = 0; v < this.numVariables; v++) {
+            solution[v] = lattice.bottom();
+        }
+
+        return solution;
+    }
+
+    /** Iterative algorithm to compute least fixpoint of equations over {@param lattice} defined by {@param transferFunction}.
+     *  The returned array is indexed by variable. */
+    <T, L extends CompleteUpperSemiLattice<T>>
+    T[] solve(L lattice, TransferFunction<T> transferFunction) {
+        buildAdjacency();
+
+        // initialize all variable solutions to bottom
+        T[] solution = initialSolution(lattice);
+        IntQueue worklist = new IntQueue(this.numVariables);
+        for (int v = 0; v < this.numVariables; v++) {
+            worklist.addLast(v);
+        }
+
+        startSolve();
+        while (!worklist.isEmpty()) {
+            if (this.stats != null) {
+                this.stats.observeWorklist(worklist.size());
+            }
+            int var = worklist.removeFirst();
+
+            // update solution, add dependencies to worklist
+            if (update(var, solution, lattice, transferFunction)) {
+                for (int i = this.childOffsets[var]; i < this.childOffsets[var + 1]; i++) {
+                    worklist.addLast(this.childTargets[i]);
+                }
+            }
+        }
 
-        this.children.get(fromVar).add(toVar);
-        this.parents.get(toVar).add(fromVar);
+        return solution;
     }
 
-    /** Iterative algorithm to compute least fixpoint of equations over {@param lattice} defined by {@param transferFunction}. */
+    /** Like {@link #solve(CompleteUpperSemiLattice, TransferFunction)}, but always visits the pending variable
+     *  that comes first in {@param order}, which must contain every variable exactly once.
+     *  A variable is never pending more than once. */
     <T, L extends CompleteUpperSemiLattice<T>>
-    HashMap<DataFlowVariable, T> solve(L lattice, TransferFunction<T> transferFunction) {
-        HashMap<DataFlowVariable, T> solution = new HashMap<>();
-        LinkedList<DataFlowVariable> worklist = new LinkedList<>();
+    T[] solve(L lattice, TransferFunction<T> transferFunction, int[] order) {
+        assert(order.length == this.numVariables);
+        buildAdjacency();
+
+        // the worklist holds priorities (positions in order) instead of variables
+        int[] priority = priorities(order);
+        IntHeap worklist = new IntHeap(this.numVariables);
+        boolean[] inQueue = new boolean[this.numVariables];
 
         // initialize all variable solutions to bottom
-        for (DataFlowVariable dfVar : this.children.keySet()) {
-            // System.out.printf("%s => %s\n", dfVar, this.children.get(dfVar));
+        T[] solution = initialSolution(lattice);
+        for (int i = 0; i < order.length; i++) {
+            worklist.add(i);
+            inQueue[i] = true;
+        }
+
+        startSolve();
+        propagate(solution, lattice, transferFunction, order, priority, worklist, inQueue, null, null);
+        return solution;
+    }
 
-            solution.put(dfVar, lattice.bottom());
-            worklist.addLast(dfVar);
+    /** Re-solve after the equations of the variables in {@param changed} changed, updating {@param solution} (the
+     *  solution of the old equations, with any entry for variables created since) in place. All variables that depend
+     *  on a changed variable, directly or transitively, are reset to bottom and solved again, visiting pending
+     *  variables in {@param order}, where the position of each variable is given by {@param priority}; the others
+     *  keep their value. Resetting the region makes this correct for changes that shrink solutions, too. Apart from
+     *  rebuilding the adjacency arrays after dependencies changed, the cost only depends on the size of the region.
+     *  Return the variables of the region, in order. */
+    <T, L extends CompleteUpperSemiLattice<T>>
+    int[] resolve(L lattice, TransferFunction<T> transferFunction, int[] order, int[] priority, T[] solution, int[] changed) {
+        int[] region = region(order, priority, changed);
+        IntHeap worklist = new IntHeap(region.length);
+        for (int var : region) {
+            solution[var] = lattice.bottom();
+            worklist.add(priority[var]);
+            this.regionPending[priority[var]] = true;
         }
 
-        while (worklist.size() > 0) {
-            DataFlowVariable dfVar = worklist.removeFirst();
+        // the region is closed under children, so propagation never leaves it
+        startSolve();
+        propagate(solution, lattice, transferFunction, order, priority, worklist, this.regionPending, null, null);
+        return region;
+    }
 
-            T input = lattice.join(
-                this.parents.get(dfVar).stream().map(solution::get).collect(Collectors.toSet())
-            );
+    /** Like {@link #resolve}, for lattices with infinite chains: the region is solved as by {@link #solveWidening},
+     *  widening at the {@link #wideningPoints} of the last widening solve and at the targets of edges of the region
+     *  that go backwards in {@param order} (every cycle through the region lies in it, so these make it terminate),
+     *  then narrowing for up to {@param narrowingPasses} descending passes over the region. */
+    <T, L extends WideningLattice<T>>
+    int[] resolveWidening(L lattice, TransferFunction<T> transferFunction, int[] order, int[] priority, T[] solution,
+                          int[] changed, int narrowingPasses) {
+        int[] region = region(order, priority, changed);
+        if (this.wideningPoints == null) {
+            this.wideningPoints = new boolean[this.numVariables];
 
-            T output = transferFunction.transfer(dfVar, input);
+        } else if (this.wideningPoints.length < this.numVariables) {
+            this.wideningPoints = Arrays.copyOf(this.wideningPoints, this.numVariables);
+        }
 
-            // update solution, add dependencies to worklist
-            if (!solution.get(dfVar).equals(output)) {
-                solution.put(dfVar, output);
+        // dependencies added since the last solve have both ends in the region
+        IntHeap worklist = new IntHeap(region.length);
+        for (int var : region) {
+            for (int i = this.childOffsets[var]; i < this.childOffsets[var + 1]; i++) {
+                if (priority[this.childTargets[i]] <= priority[var]) {
+                    this.wideningPoints[this.childTargets[i]] = true;
+                }
+            }
+            solution[var] = lattice.bottom();
+            worklist.add(priority[var]);
+            this.regionPending[priority[var]] = true;
+        }
+
+        startSolve();
+        propagate(solution, lattice, transferFunction, order, priority, worklist, this.regionPending, this.wideningPoints, lattice::widen);
+
+        for (int pass = 0; pass < narrowingPasses; pass++) {
+            boolean changedValue = false;
+            for (int var : region) {
+                changedValue |= update(var, solution, lattice, transferFunction, this.wideningPoints[var] ? lattice::narrow : null);
+            }
 
-                for (DataFlowVariable child : this.children.get(dfVar)) {
-                    worklist.addLast(child);
+            if (!changedValue) {
+                break;
+            }
+        }
+
+        return region;
+    }
+
+    /** return the variables that depend on a variable in {@param changed}, directly or transitively, including
+     *  themselves, sorted by {@param priority}. */
+    private int[] region(int[] order, int[] priority, int[] changed) {
+        assert(order.length == this.numVariables);
+        buildAdjacency();
+        if (this.regionMarks == null || this.regionMarks.length != this.numVariables) {
+            this.regionMarks = new boolean[this.numVariables];
+            this.regionPending = new boolean[this.numVariables];
+        }
+
+        int[] members = new int[Math.max(changed.length, 16)];
+        int size = 0;
+        for (int var : changed) {
+            if (!this.regionMarks[var]) {
+                this.regionMarks[var] = true;
+                members[size++] = var;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int var = members[i];
+            for (int j = this.childOffsets[var]; j < this.childOffsets[var + 1]; j++) {
+                int child = this.childTargets[j];
+                if (!this.regionMarks[child]) {
+                    if (size == members.length) {
+                        members = Arrays.copyOf(members, size * 2);
+                    }
+                    this.regionMarks[child] = true;
+                    members[size++] = child;
+                }
+            }
+        }
+
+        // sort by priority, and reset the marks for the next call
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.regionMarks[members[i]] = false;
+            positions[i] = priority[members[i]];
+        }
+        Arrays.sort(positions);
+        for (int i = 0; i < size; i++) {
+            positions[i] = order[positions[i]];
+        }
+        return positions;
+    }
+
+    /** Solve only the variables on which {@param target} depends, directly or transitively, without going past
+     *  variables marked in {@param solved}: their values in {@param solution} are final and are used as they are.
+     *  The variables of the slice are solved from bottom, then marked solved. The set of solved variables must be
+     *  closed under parents, which holds if it only grows by slices. Pending variables are visited in postorder of a
+     *  depth-first search over parents from {@param target}, so that, apart from cycles, a variable is visited after
+     *  the variables it depends on. Return the number of variables in the slice. */
+    <T, L extends CompleteUpperSemiLattice<T>>
+    int solveSlice(L lattice, TransferFunction<T> transferFunction, T[] solution, boolean[] solved, int target) {
+        int[] order = slice(solved, target);
+        propagateSlice(order, solution, lattice, transferFunction, null, null);
+        finishSlice(order, solved);
+        return order.length;
+    }
+
+    /** Like {@link #solveSlice(CompleteUpperSemiLattice, TransferFunction, Object[], boolean[], int)}, for lattices
+     *  with infinite chains: the targets of edges that go backwards in the order of the slice are widened, then up to
+     *  {@param narrowingPasses} descending passes narrow them. Since widening depends on the order of evaluation, the
+     *  result is a post-fixpoint that may differ from that of {@link #solveWidening}. */
+    <T, L extends WideningLattice<T>>
+    int solveSliceWidening(L lattice, TransferFunction<T> transferFunction, T[] solution, boolean[] solved, int target,
+                           int narrowingPasses) {
+        int[] order = slice(solved, target);
+        for (int var : order) {
+            for (int i = this.childOffsets[var]; i < this.childOffsets[var + 1]; i++) {
+                int child = this.childTargets[i];
+                if (this.slicePositions[child] >= 0 && this.slicePositions[child] <= this.slicePositions[var]) {
+                    this.sliceWideningPoints[child] = true;
                 }
             }
         }
 
+        propagateSlice(order, solution, lattice, transferFunction, this.sliceWideningPoints, lattice::widen);
+        for (int pass = 0; pass < narrowingPasses; pass++) {
+            boolean changed = false;
+            for (int var : order) {
+                changed |= update(var, solution, lattice, transferFunction, this.sliceWideningPoints[var] ? lattice::narrow : null);
+            }
+
+            if (!changed) {
+                break;
+            }
+        }
+
+        finishSlice(order, solved);
+        return order.length;
+    }
+
+    /** return the variables that {@param target} depends on and that are not {@param solved}, with their positions
+     *  in {@link #slicePositions}. They are in reverse postorder of depth-first searches over children from the
+     *  variables with no parents among them, which is the order {@link DataFlowAnalysis} uses to solve all variables,
+     *  restricted to the slice. */
+    private int[] slice(boolean[] solved, int target) {
+        buildAdjacency();
+        if (this.slicePositions == null || this.slicePositions.length != this.numVariables) {
+            this.slicePositions = new int[this.numVariables];
+            Arrays.fill(this.slicePositions, -1);
+            this.sliceWideningPoints = new boolean[this.numVariables];
+        }
+        if (solved[target]) {
+            return new int[0];
+        }
+
+        // collect the slice by a search over parents; its variables are at position -2 until they are visited
+        int[] members = new int[16];
+        int size = 0;
+        members[size++] = target;
+        this.slicePositions[target] = -2;
+        for (int i = 0; i < size; i++) {
+            int var = members[i];
+            for (int j = this.parentOffsets[var]; j < this.parentOffsets[var + 1]; j++) {
+                int parent = this.parentSources[j];
+                if (!solved[parent] && this.slicePositions[parent] == -1) {
+                    if (size == members.length) {
+                        members = Arrays.copyOf(members, size * 2);
+                    }
+                    this.slicePositions[parent] = -2;
+                    members[size++] = parent;
+                }
+            }
+        }
+
+        // searches start from the variables without parents in the slice, then from any variable they did not reach,
+        // which can only be on a cycle that the others do not lead to
+        int[] roots = new int[2 * size];
+        int numRoots = 0;
+        for (int i = 0; i < size; i++) {
+            int var = members[i];
+            boolean root = true;
+            for (int j = this.parentOffsets[var]; j < this.parentOffsets[var + 1] && root; j++) {
+                root = this.slicePositions[this.parentSources[j]] == -1;
+            }
+            if (root) {
+                roots[numRoots++] = var;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            roots[numRoots++] = members[i];
+        }
+
+        // the stack holds variables and the index of their next child; visited variables are at position -3, and
+        // the postorder fills the order from its end
+        int[] order = new int[size];
+        int next = size;
+        int[] stack = new int[32];
+        for (int r = 0; r < numRoots; r++) {
+            if (this.slicePositions[roots[r]] != -2) {
+                continue;
+            }
+
+            int top = 0;
+            stack[top++] = roots[r];
+            stack[top++] = this.childOffsets[roots[r]];
+            this.slicePositions[roots[r]] = -3;
+            while (top > 0) {
+                int var = stack[top - 2];
+                int edge = stack[top - 1];
+                if (edge == this.childOffsets[var + 1]) {
+                    top -= 2;
+                    order[--next] = var;
+                    continue;
+                }
+
+                stack[top - 1] = edge + 1;
+                int child = this.childTargets[edge];
+                if (this.slicePositions[child] == -2) {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    this.slicePositions[child] = -3;
+                    stack[top++] = child;
+                    stack[top++] = this.childOffsets[child];
+                }
+            }
+        }
+
+        assert(next == 0);
+        for (int i = 0; i < size; i++) {
+            this.slicePositions[order[i]] = i;
+        }
+        return order;
+    }
+
+    /** run the priority worklist algorithm over the variables of a slice, given in {@param order}, from bottom. */
+    private <T, L extends CompleteUpperSemiLattice<T>>
+    void propagateSlice(int[] order, T[] solution, L lattice, TransferFunction<T> transferFunction,
+                        boolean[] combinePoints, BinaryOperator<T> combine) {
+        IntHeap worklist = new IntHeap(order.length);
+        boolean[] inQueue = new boolean[order.length];
+        for (int i = 0; i < order.length; i++) {
+            solution[order[i]] = lattice.bottom();
+            worklist.add(i);
+            inQueue[i] = true;
+        }
+
+        startSolve();
+        propagate(solution, lattice, transferFunction, order, this.slicePositions, worklist, inQueue, combinePoints, combine);
+    }
+
+    /** mark the variables of a slice solved, and reset the scratch arrays for the next one. */
+    private void finishSlice(int[] order, boolean[] solved) {
+        for (int var : order) {
+            solved[var] = true;
+            this.slicePositions[var] = -1;
+            this.sliceWideningPoints[var] = false;
+        }
+    }
+
+    /** reset the counters of the last solve. */
+    private void startSolve() {
+        this.iterations = 0;
+        this.stats = this.collectStats ? new SolverStats(this.numVariables) : null;
+    }
+
+    /** return the position of each variable in {@param order}. */
+    static int[] priorities(int[] order) {
+        int[] priority = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            priority[order[i]] = i;
+        }
+        return priority;
+    }
+
+    /** run the priority worklist algorithm until no variable is pending. The new value of each variable in
+     *  {@param combinePoints} (if not null) is combined with its old value by {@param combine}. Children with a
+     *  negative priority are not part of the variables being solved, and are not visited. */
+    private <T, L extends CompleteUpperSemiLattice<T>>
+    void propagate(T[] solution, L lattice, TransferFunction<T> transferFunction,
+                   int[] order, int[] priority, IntHeap worklist, boolean[] inQueue,
+                   boolean[] combinePoints, BinaryOperator<T> combine) {
+        while (!worklist.isEmpty()) {
+            if (this.stats != null) {
+                this.stats.observeWorklist(worklist.size());
+            }
+            int cur = worklist.removeMin();
+            inQueue[cur] = false;
+            int var = order[cur];
+
+            // update solution, add dependencies that are not already pending to worklist
+            var varCombine = combinePoints != null && combinePoints[var] ? combine : null;
+            if (update(var, solution, lattice, transferFunction, varCombine)) {
+                for (int i = this.childOffsets[var]; i < this.childOffsets[var + 1]; i++) {
+                    int childPriority = priority[this.childTargets[i]];
+                    if (childPriority >= 0 && !inQueue[childPriority]) {
+                        inQueue[childPriority] = true;
+                        worklist.add(childPriority);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Solve equations over a lattice with infinite chains: like {@link #solve(CompleteUpperSemiLattice, TransferFunction, int[])},
+     *  but the values of widening points (targets of edges that go backwards in {@param order}, i.e. loop heads for
+     *  a reverse postorder) are widened, which makes the iteration terminate. The post-fixpoint is then improved by
+     *  up to {@param narrowingPasses} descending passes that narrow the values of widening points. */
+    <T, L extends WideningLattice<T>>
+    T[] solveWidening(L lattice, TransferFunction<T> transferFunction, int[] order, int narrowingPasses) {
+        assert(order.length == this.numVariables);
+        buildAdjacency();
+
+        int[] priority = priorities(order);
+        this.wideningPoints = new boolean[this.numVariables];
+        for (int var = 0; var < this.numVariables; var++) {
+            for (int i = this.childOffsets[var]; i < this.childOffsets[var + 1]; i++) {
+                if (priority[this.childTargets[i]] <= priority[var]) {
+                    this.wideningPoints[this.childTargets[i]] = true;
+                }
+            }
+        }
+
+        T[] solution = initialSolution(lattice);
+        IntHeap worklist = new IntHeap(this.numVariables);
+        boolean[] inQueue = new boolean[this.numVariables];
+        for (int i = 0; i < order.length; i++) {
+            worklist.add(i);
+            inQueue[i] = true;
+        }
+
+        startSolve();
+        propagate(solution, lattice, transferFunction, order, priority, worklist, inQueue, this.wideningPoints, lattice::widen);
+
+        for (int pass = 0; pass < narrowingPasses; pass++) {
+            boolean changed = false;
+            for (int var : order) {
+                changed |= update(var, solution, lattice, transferFunction, this.wideningPoints[var] ? lattice::narrow : null);
+            }
+
+            if (!changed) {
+                break;
+            }
+        }
+
         return solution;
     }
+
+    /** Solve with the recursive iteration strategy over a weak topological ordering of the dependency graph.
+     *  Depth-first traversals used to compute the ordering start from the variables in {@param roots}. */
+    <T, L extends CompleteUpperSemiLattice<T>>
+    T[] solveWeakTopological(L lattice, TransferFunction<T> transferFunction, int[] roots) {
+        buildAdjacency();
+
+        T[] solution = initialSolution(lattice);
+        this.wto = WeakTopologicalOrder.compute(this.numVariables, this.childOffsets, this.childTargets, roots);
+        startSolve();
+        for (WtoElement element : this.wto.elements) {
+            solveElement(element, solution, lattice, transferFunction);
+        }
+
+        return solution;
+    }
+
+    private <T, L extends CompleteUpperSemiLattice<T>>
+    void solveElement(WtoElement element, T[] solution, L lattice, TransferFunction<T> transferFunction) {
+        if (element instanceof WtoVertex vertex) {
+            update(vertex.var, solution, lattice, transferFunction);
+
+        } else if (element instanceof WtoComponent component) {
+            // stabilize the body, then re-evaluate the head; the component is stable once the head is. Iterations add
+            // up over every time a nested component is entered
+            update(component.head, solution, lattice, transferFunction);
+            do {
+                component.iterations += 1;
+                for (WtoElement child : component.body) {
+                    solveElement(child, solution, lattice, transferFunction);
+                }
+            } while (update(component.head, solution, lattice, transferFunction));
+        }
+    }
+
+    /** Solve on {@param pool}: each strongly connected component of the dependency graph is solved by one task once
+     *  all components it depends on are solved, with pending variables visited in the order given by {@param order}.
+     *  Since a component only starts from final inputs, the result is the same as that of the sequential solvers.
+     *  The transfer function and lattice must be safe to call from several threads at once. */
+    <T, L extends CompleteUpperSemiLattice<T>>
+    T[] solveParallel(L lattice, TransferFunction<T> transferFunction, int[] order, ForkJoinPool pool) {
+        assert(order.length == this.numVariables);
+        buildAdjacency();
+
+        var scc = StronglyConnectedComponents.compute(this.numVariables, this.childOffsets, this.childTargets);
+        this.components = scc;
+
+        int[] priority = priorities(order);
+
+        T[] initial = initialSolution(lattice);
+        var solution = new AtomicReferenceArray<>(initial);
+
+        // number of components each component still waits for
+        var pending = new AtomicIntegerArray(scc.numPredecessors);
+        var remaining = new CountDownLatch(scc.numComponents);
+        var failure = new AtomicReference<Throwable>();
+        startSolve();
+        var iterations = new LongAdder();
+        var stats = this.stats;
+
+        // whether each variable is pending; every variable is only accessed by the task of its component
+        boolean[] inQueue = new boolean[this.numVariables];
+
+        // tasks are never serialized
+        @SuppressWarnings("serial")
+        class ComponentTask extends RecursiveAction {
+            final int component;
+
+            ComponentTask(int component) {
+                this.component = component;
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    if (failure.get() == null) {
+                        iterations.add(solveComponent(this.component, scc, priority, order, inQueue, solution, lattice, transferFunction, stats));
+                    }
+
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+
+                } finally {
+                    // successors are still released after a failure, so that the solve terminates
+                    for (int i = scc.successorOffsets[this.component]; i < scc.successorOffsets[this.component + 1]; i++) {
+                        if (pending.decrementAndGet(scc.successors[i]) == 0) {
+                            new ComponentTask(scc.successors[i]).fork();
+                        }
+                    }
+                    remaining.countDown();
+                }
+            }
+        }
+
+        for (int c = 0; c < scc.numComponents; c++) {
+            if (scc.numPredecessors[c] == 0) {
+                pool.execute(new ComponentTask(c));
+            }
+        }
+
+        try {
+            remaining.await();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while solving", e);
+        }
+
+        if (failure.get() instanceof RuntimeException e) {
+            throw e;
+
+        } else if (failure.get() instanceof Error e) {
+            throw e;
+
+        } else if (failure.get() != null) {
+            throw new RuntimeException(failure.get());
+        }
+
+        this.iterations = (int) iterations.sum();
+        for (int v = 0; v < this.numVariables; v++) {
+            initial[v] = solution.get(v);
+        }
+        return initial;
+    }
+
+    /** Solve the variables of {@param component} with a priority worklist, assuming the variables of the components
+     *  it depends on are solved. Return the number of variable evaluations, and add statistics to {@param stats}
+     *  if it is not null. */
+    private <T, L extends CompleteUpperSemiLattice<T>>
+    int solveComponent(int component, StronglyConnectedComponents scc, int[] priority, int[] order, boolean[] inQueue,
+                       AtomicReferenceArray<T> solution, L lattice, TransferFunction<T> transferFunction, SolverStats stats) {
+        int start = scc.memberOffsets[component];
+        int end = scc.memberOffsets[component + 1];
+
+        // visits of variables of this component are only counted by this task; the other counters are merged at the end
+        var local = stats == null ? null : new SolverStats(stats.visits);
+
+        IntHeap worklist = new IntHeap(end - start);
+        for (int i = start; i < end; i++) {
+            int var = scc.members[i];
+            worklist.add(priority[var]);
+            inQueue[var] = true;
+        }
+
+        int iterations = 0;
+        while (!worklist.isEmpty()) {
+            if (local != null) {
+                local.observeWorklist(worklist.size());
+            }
+            int var = order[worklist.removeMin()];
+            inQueue[var] = false;
+            iterations += 1;
+
+            long joinStart = local == null ? 0 : System.nanoTime();
+            T input = lattice.startJoin();
+            for (int i = this.parentOffsets[var]; i < this.parentOffsets[var + 1]; i++) {
+                input = lattice.joinInto(input, solution.get(this.parentSources[i]));
+            }
+            input = lattice.finishJoin(input);
+
+            long transferStart = local == null ? 0 : System.nanoTime();
+            T output = transferFunction.transfer(var, input);
+
+            long equalsStart = local == null ? 0 : System.nanoTime();
+            boolean unchanged = solution.get(var).equals(output);
+            if (local != null) {
+                long equalsEnd = System.nanoTime();
+                local.record(var, transferStart - joinStart, equalsStart - transferStart, equalsEnd - equalsStart, !unchanged);
+            }
+
+            if (unchanged) {
+                continue;
+            }
+
+            // children in other components are solved once this component is
+            solution.set(var, output);
+            for (int i = this.childOffsets[var]; i < this.childOffsets[var + 1]; i++) {
+                int child = this.childTargets[i];
+                if (scc.component[child] == component && !inQueue[child]) {
+                    inQueue[child] = true;
+                    worklist.add(priority[child]);
+                }
+            }
+        }
+
+        if (stats != null) {
+            stats.add(local);
+        }
+        return iterations;
+    }
+
+    private <T, L extends CompleteUpperSemiLattice<T>>
+    boolean update(int var, T[] solution, L lattice, TransferFunction<T> transferFunction) {
+        return update(var, solution, lattice, transferFunction, null);
+    }
+
+    /** Re-evaluate the equation for {@param var} and return whether its solution changed.
+     *  If {@param combine} is not null, the new solution is combine(old solution, value of the equation). */
+    private <T, L extends CompleteUpperSemiLattice<T>>
+    boolean update(int var, T[] solution, L lattice, TransferFunction<T> transferFunction, BinaryOperator<T> combine) {
+        this.iterations += 1;
+
+        // fold the solutions of the parents through the lattice's accumulator
+        long joinStart = this.stats == null ? 0 : System.nanoTime();
+        T input = lattice.startJoin();
+        for (int i = this.parentOffsets[var]; i < this.parentOffsets[var + 1]; i++) {
+            input = lattice.joinInto(input, solution[this.parentSources[i]]);
+        }
+        input = lattice.finishJoin(input);
+
+        long transferStart = this.stats == null ? 0 : System.nanoTime();
+        T output = transferFunction.transfer(var, input);
+
+        long combineStart = this.stats == null ? 0 : System.nanoTime();
+        if (combine != null) {
+            output = combine.apply(solution[var], output);
+        }
+
+        long equalsStart = this.stats == null ? 0 : System.nanoTime();
+        boolean changed = !solution[var].equals(output);
+        if (this.stats != null) {
+            // widening and narrowing count as joins
+            long equalsEnd = System.nanoTime();
+            this.stats.record(
+                var,
+                (transferStart - joinStart) + (equalsStart - combineStart),
+                combineStart - transferStart,
+                equalsEnd - equalsStart,
+                changed
+            );
+        }
+
+        if (changed) {
+            solution[var] = output;
+            return true;
+
+        } else {
+            return false;
+        }
+    }
 }
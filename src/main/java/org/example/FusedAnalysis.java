@@ -0,0 +1,274 @@
+package org.example;
+
+import java.util.*;
+
+/** Tuple with one element per component lattice of a {@link ProductLattice}. */
+class ProductElement {
+    final Object[] components;
+
+    ProductElement(Object[] components) {
+        this.components = components;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ProductElement otherElement && Arrays.equals(this.components, otherElement.components);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.components);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.components);
+    }
+}
+
+/** product of lattices, ordered componentwise. Joins use the accumulators of the component lattices. */
+class ProductLattice implements CompleteUpperSemiLattice<ProductElement> {
+    List<CompleteUpperSemiLattice<Object>> lattices;
+
+    @SuppressWarnings("unchecked")
+    ProductLattice(List<? extends CompleteUpperSemiLattice<?>> lattices) {
+        this.lattices = new ArrayList<>();
+        for (var lattice : lattices) {
+            this.lattices.add((CompleteUpperSemiLattice<Object>) lattice);
+        }
+    }
+
+    @Override
+    public ProductElement join(Set<ProductElement> elements) {
+        var res = startJoin();
+        for (ProductElement element : elements) {
+            res = joinInto(res, element);
+        }
+        return finishJoin(res);
+    }
+
+    @Override
+    public ProductElement bottom() {
+        var components = new Object[this.lattices.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = this.lattices.get(i).bottom();
+        }
+        return new ProductElement(components);
+    }
+
+    /** the accumulator holds the accumulator of each component lattice. */
+    @Override
+    public ProductElement startJoin() {
+        var components = new Object[this.lattices.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = this.lattices.get(i).startJoin();
+        }
+        return new ProductElement(components);
+    }
+
+    @Override
+    public ProductElement joinInto(ProductElement accumulator, ProductElement element) {
+        for (int i = 0; i < accumulator.components.length; i++) {
+            accumulator.components[i] = this.lattices.get(i).joinInto(accumulator.components[i], element.components[i]);
+        }
+        return accumulator;
+    }
+
+    @Override
+    public ProductElement finishJoin(ProductElement accumulator) {
+        for (int i = 0; i < accumulator.components.length; i++) {
+            accumulator.components[i] = this.lattices.get(i).finishJoin(accumulator.components[i]);
+        }
+        return accumulator;
+    }
+}
+
+/** product of lattices where some components have widening and narrowing operators. Those components are widened
+ *  and narrowed with them; the others have finite ascending chains and simply take the new value. */
+class WideningProductLattice extends ProductLattice implements WideningLattice<ProductElement> {
+    WideningProductLattice(List<? extends CompleteUpperSemiLattice<?>> lattices) {
+        super(lattices);
+    }
+
+    /** return whether any of {@param lattices} has widening, so that their product needs it too. */
+    static boolean needsWidening(List<? extends CompleteUpperSemiLattice<?>> lattices) {
+        for (var lattice : lattices) {
+            if (lattice instanceof WideningLattice<?>) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ProductElement widen(ProductElement previous, ProductElement next) {
+        var components = new Object[this.lattices.size()];
+        for (int i = 0; i < components.length; i++) {
+            if (this.lattices.get(i) instanceof WideningLattice<?>) {
+                @SuppressWarnings("unchecked")
+                var widening = (WideningLattice<Object>) this.lattices.get(i);
+                components[i] = widening.widen(previous.components[i], next.components[i]);
+
+            } else {
+                components[i] = next.components[i];
+            }
+        }
+        return new ProductElement(components);
+    }
+
+    @Override
+    public ProductElement narrow(ProductElement previous, ProductElement next) {
+        var components = new Object[this.lattices.size()];
+        for (int i = 0; i < components.length; i++) {
+            if (this.lattices.get(i) instanceof WideningLattice<?>) {
+                @SuppressWarnings("unchecked")
+                var widening = (WideningLattice<Object>) this.lattices.get(i);
+                components[i] = widening.narrow(previous.components[i], next.components[i]);
+
+            } else {
+                components[i] = next.components[i];
+            }
+        }
+        return new ProductElement(components);
+    }
+}
+
+/** Solves several analyses of the same CFG in the same direction at once, over the product of their lattices.
+ *  There is one solver, dependency graph and worklist for all of them, and every block is looked up once per
+ *  evaluation; each analysis then applies its own block transfer function to its component. If any of the analyses
+ *  has a lattice with widening, the product is widened and narrowed as well. */
+class FusedAnalysis extends DataFlowAnalysis<ProductElement, ProductLattice> {
+    List<DataFlowAnalysis<Object, ?>> analyses;
+
+    @SuppressWarnings("unchecked")
+    FusedAnalysis(List<? extends DataFlowAnalysis<?, ?>> analyses) {
+        super(
+            productLattice(analyses),
+            commonCfg(analyses),
+            commonDirection(analyses)
+        );
+
+        this.analyses = new ArrayList<>();
+        for (var analysis : analyses) {
+            this.analyses.add((DataFlowAnalysis<Object, ?>) analysis);
+        }
+    }
+
+    private static ProductLattice productLattice(List<? extends DataFlowAnalysis<?, ?>> analyses) {
+        var lattices = analyses.stream().map(analysis -> analysis.lattice).toList();
+        return WideningProductLattice.needsWidening(lattices) ? new WideningProductLattice(lattices) : new ProductLattice(lattices);
+    }
+
+    private static ControlFlowGraph commonCfg(List<? extends DataFlowAnalysis<?, ?>> analyses) {
+        if (analyses.isEmpty()) {
+            throw new RuntimeException("no analyses to fuse");
+        }
+
+        var cfg = analyses.get(0).cfg;
+        for (var analysis : analyses) {
+            if (analysis.cfg != cfg) {
+                throw new RuntimeException("fused analyses must analyze the same CFG");
+            }
+        }
+        return cfg;
+    }
+
+    private static DataFlowDirection commonDirection(List<? extends DataFlowAnalysis<?, ?>> analyses) {
+        var direction = analyses.get(0).direction;
+        for (var analysis : analyses) {
+            if (analysis.direction != direction) {
+                throw new RuntimeException("fused analyses must have the same direction");
+            }
+        }
+        return direction;
+    }
+
+    /** Solve all analyses and return the solution of each, in the order they were given. */
+    List<HashMap<Integer, ?>> analyzeAll() {
+        var solution = analyze();
+        var res = new ArrayList<HashMap<Integer, ?>>();
+        for (int i = 0; i < this.analyses.size(); i++) {
+            res.add(component(solution, i));
+        }
+        return res;
+    }
+
+    /** return the solution of {@param analysis}, one of the fused analyses, from a fused {@param solution}. */
+    @SuppressWarnings("unchecked")
+    <T> HashMap<Integer, T> solutionOf(DataFlowAnalysis<T, ?> analysis, HashMap<Integer, ProductElement> solution) {
+        for (int i = 0; i < this.analyses.size(); i++) {
+            if (this.analyses.get(i) == analysis) {
+                return (HashMap<Integer, T>) component(solution, i);
+            }
+        }
+
+        throw new RuntimeException("analysis is not part of this fused analysis");
+    }
+
+    private HashMap<Integer, Object> component(HashMap<Integer, ProductElement> solution, int i) {
+        var res = new HashMap<Integer, Object>();
+        for (var kv : solution.entrySet()) {
+            res.put(kv.getKey(), kv.getValue().components[i]);
+        }
+        return res;
+    }
+
+    @Override
+    boolean applyEdits(List<CfgEdit> edits) {
+        boolean reusable = super.applyEdits(edits);
+        for (var analysis : this.analyses) {
+            reusable &= analysis.applyEdits(edits);
+        }
+        return reusable;
+    }
+
+    @Override
+    void prepare() {
+        for (var analysis : this.analyses) {
+            analysis.prepare();
+        }
+    }
+
+    @Override
+    void prepareQuery() {
+        for (var analysis : this.analyses) {
+            analysis.prepareQuery();
+        }
+    }
+
+    @Override
+    ProductElement initial() {
+        var components = new Object[this.analyses.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = this.analyses.get(i).initial();
+        }
+        return new ProductElement(components);
+    }
+
+    @Override
+    ProductElement transfer(BasicBlock block, ProductElement input) {
+        var components = new Object[this.analyses.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = this.analyses.get(i).transfer(block, input.components[i]);
+        }
+        return new ProductElement(components);
+    }
+
+    @Override
+    ProductElement transfer(BasicBlock block, AtomicStatement statement, ProductElement input) {
+        var components = new Object[this.analyses.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = this.analyses.get(i).transfer(block, statement, input.components[i]);
+        }
+        return new ProductElement(components);
+    }
+
+    @Override
+    ProductElement transfer(Expression guard, ProductElement input) {
+        var components = new Object[this.analyses.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = this.analyses.get(i).transfer(guard, input.components[i]);
+        }
+        return new ProductElement(components);
+    }
+}
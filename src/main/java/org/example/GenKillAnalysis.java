@@ -0,0 +1,186 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/** Bit-vector analysis whose transfer functions have the form out = gen + (in - kill).
+ *  Subclasses declare gen and kill sets per statement and guard; these are composed into
+ *  one gen and one kill set per block, so each transfer is a pair of word-level operations. Solves compose every
+ *  block beforehand, so that transfers only read them and can run on several threads; queries compose blocks the
+ *  first time they are evaluated, so that blocks a {@link #query} does not reach are never composed. */
+abstract class GenKillAnalysis<E, L extends CompleteUpperSemiLattice<IndexedSet<E>>> extends DataFlowAnalysis<IndexedSet<E>, L> {
+    ElementIndex<E> index;
+
+    // gen and kill sets of each block, indexed by dataflow variable; null until prepared, and entries are null
+    // until the block is first evaluated, unless every block is composed
+    List<IndexedSet<E>> blockGen;
+    List<IndexedSet<E>> blockKill;
+    private boolean composedAll;
+
+    GenKillAnalysis(L lattice, ElementIndex<E> index, ControlFlowGraph cfg, DataFlowDirection direction) {
+        super(lattice, cfg, direction);
+        this.index = index;
+    }
+
+    /** Elements generated by {@param statement} in {@param block}. */
+    abstract Set<E> gen(BasicBlock block, AtomicStatement statement);
+
+    /** Elements killed by {@param statement} in {@param block}. */
+    abstract Set<E> kill(BasicBlock block, AtomicStatement statement);
+
+    /** Elements generated by a conditional / loop guard. By default, none. */
+    Set<E> gen(Expression guard) {
+        return Set.of();
+    }
+
+    /** Elements killed by a conditional / loop guard. By default, none. */
+    Set<E> kill(Expression guard) {
+        return Set.of();
+    }
+
+    @Override
+    void prepare() {
+        prepareQuery();
+        if (this.composedAll) {
+            return;
+        }
+
+        for (int dfVar = 0; dfVar < this.varBlocks.length; dfVar++) {
+            composeVariable(dfVar);
+        }
+        this.composedAll = true;
+    }
+
+    @Override
+    void prepareQuery() {
+        if (this.blockGen != null) {
+            return;
+        }
+
+        this.blockGen = new ArrayList<>(Collections.nCopies(this.varBlocks.length, null));
+        this.blockKill = new ArrayList<>(Collections.nCopies(this.varBlocks.length, null));
+    }
+
+    /** compose the gen and kill sets of the block of {@param dfVar}, unless they already are. */
+    private void composeVariable(int dfVar) {
+        if (this.blockGen.get(dfVar) != null) {
+            return;
+        }
+
+        var gen = new IndexedSet<>(this.index);
+        var kill = new IndexedSet<>(this.index);
+        composeBlock(this.cfg.blockMap.get(this.varBlocks[dfVar]), gen, kill);
+        this.blockGen.set(dfVar, gen);
+        this.blockKill.set(dfVar, kill);
+    }
+
+    /** Compose the effects of the statements and guard of {@param block} in the direction of the analysis. */
+    private void composeBlock(BasicBlock block, IndexedSet<E> gen, IndexedSet<E> kill) {
+        var guard = block.jump instanceof ConditionalJump jump ? jump.guard : null;
+        if (this.direction == DataFlowDirection.BACKWARD && guard != null) {
+            compose(gen, kill, gen(guard), kill(guard));
+        }
+
+        var statements = this.direction == DataFlowDirection.FORWARD
+            ? block.statements.iterator()
+            : block.statements.descendingIterator();
+        while (statements.hasNext()) {
+            var statement = statements.next();
+            compose(gen, kill, gen(block, statement), kill(block, statement));
+        }
+
+        if (this.direction == DataFlowDirection.FORWARD && guard != null) {
+            compose(gen, kill, gen(guard), kill(guard));
+        }
+    }
+
+    /** The element index is fixed, so changed blocks must only generate and kill elements it already has;
+     *  their gen and kill sets are recomputed. */
+    @Override
+    boolean refresh(Set<Integer> changedBlocks) {
+        for (int blockId : changedBlocks) {
+            var block = this.cfg.blockMap.get(blockId);
+            for (AtomicStatement statement : block.statements) {
+                if (!indexed(gen(block, statement)) || !indexed(kill(block, statement))) {
+                    return false;
+                }
+            }
+            if (block.jump instanceof ConditionalJump jump && (!indexed(gen(jump.guard)) || !indexed(kill(jump.guard)))) {
+                return false;
+            }
+        }
+
+        if (this.blockGen == null) {
+            return true;
+        }
+
+        // added blocks have the largest IDs, so their variables are appended in increasing order of IDs; once every
+        // block is composed, changed blocks are composed again right away so that it stays so
+        for (int blockId : new TreeSet<>(changedBlocks)) {
+            int dfVar = this.blockVars[blockId];
+            if (dfVar < this.blockGen.size()) {
+                this.blockGen.set(dfVar, null);
+                this.blockKill.set(dfVar, null);
+
+            } else {
+                this.blockGen.add(null);
+                this.blockKill.add(null);
+            }
+
+            if (this.composedAll) {
+                composeVariable(dfVar);
+            }
+        }
+
+        return true;
+    }
+
+    private boolean indexed(Set<E> elements) {
+        for (E element : elements) {
+            if (element == null || this.index.find(element) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Update {@param gen} and {@param kill} to describe their effect followed by {@param nextGen} and {@param nextKill}.
+     *  Sets over the index of the analysis are composed a word at a time. */
+    private void compose(IndexedSet<E> gen, IndexedSet<E> kill, Set<E> nextGen, Set<E> nextKill) {
+        gen.removeAll(nextKill);
+        kill.addAll(nextKill);
+        gen.addAll(nextGen);
+    }
+
+    @Override
+    IndexedSet<E> transfer(BasicBlock block, AtomicStatement statement, IndexedSet<E> input) {
+        return apply(input, gen(block, statement), kill(block, statement));
+    }
+
+    @Override
+    IndexedSet<E> transfer(Expression guard, IndexedSet<E> input) {
+        return apply(input, gen(guard), kill(guard));
+    }
+
+    private IndexedSet<E> apply(IndexedSet<E> input, Set<E> gen, Set<E> kill) {
+        var output = input.copy();
+        output.removeAll(kill);
+        output.addAll(gen);
+        return output;
+    }
+
+    /** Transfer function for a whole block, using its precomputed gen and kill sets. */
+    @Override
+    IndexedSet<E> transfer(BasicBlock block, IndexedSet<E> input) {
+        int dfVar = this.blockVars[block.id];
+        composeVariable(dfVar);
+        // copying the universe makes an explicit set, which the output has to be anyway
+        var output = input.copy();
+        output.subtract(this.blockKill.get(dfVar));
+        output.unionWith(this.blockGen.get(dfVar));
+        return output;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/** Keeps the solution of an analysis up to date while its CFG is edited through
+ *  {@link ControlFlowGraph#replaceStatement}, {@link ControlFlowGraph#addBlock} and {@link ControlFlowGraph#retarget}.
+ *  After edits, only the region downstream of the edited blocks is solved again, unless the edits invalidate
+ *  the analysis (e.g. by changing the universe of its lattice), in which case it is recreated and solved in full. */
+class IncrementalAnalysis<T> {
+    Function<ControlFlowGraph, ? extends DataFlowAnalysis<T, ?>> factory;
+    ControlFlowGraph cfg;
+    DataFlowAnalysis<T, ?> analysis;
+
+    // solution as of the first editsSeen edits of the CFG, updated in place unless the analysis is created anew; null
+    // before the first solve
+    HashMap<Integer, T> solution;
+    int editsSeen;
+
+    // number of solves that started from scratch, and variable evaluations of the last solve
+    int fullSolves;
+    int lastIterations;
+
+    IncrementalAnalysis(ControlFlowGraph cfg, Function<ControlFlowGraph, ? extends DataFlowAnalysis<T, ?>> factory) {
+        this.cfg = cfg;
+        this.factory = factory;
+    }
+
+    /** return the solution for the current CFG. */
+    HashMap<Integer, T> analyze() {
+        List<CfgEdit> edits = List.copyOf(this.cfg.edits.subList(this.editsSeen, this.cfg.edits.size()));
+        this.editsSeen = this.cfg.edits.size();
+
+        if (this.solution != null && edits.isEmpty()) {
+            return this.solution;
+        }
+
+        if (this.solution != null && this.analysis.applyEdits(edits)) {
+            this.solution = this.analysis.reanalyze(this.solution, edits);
+
+        } else {
+            this.analysis = this.factory.apply(this.cfg);
+            this.solution = this.analysis.analyze();
+            this.fullSolves += 1;
+        }
+
+        this.lastIterations = this.analysis.solver.iterations;
+        return this.solution;
+    }
+}
@@ -1,7 +1,7 @@
 package org.example;
 
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,10 +45,10 @@ class InformationFlowEvalVisitor implements ValueExpressionVisitor<SecurityLevel
  *  This only captures direct flows; it does not have the standard PC label machinery for
  *  implicit flows through control.
  *  Unlike standard IFC type sustems, this analysis is *flow-sensitive*, so variables can change labels. */
-class InformationFlowAnalysis extends BasicDataFlowAnalysis<Map<String,SecurityLevel>, StoreLattice<SecurityLevel, SecurityLattice>>
+class InformationFlowAnalysis extends BasicDataFlowAnalysis<Map<String,SecurityLevel>, EnumStoreLattice<SecurityLevel, SecurityLattice>>
 {
     InformationFlowAnalysis(ControlFlowGraph cfg) {
-        super(new StoreLattice<>(new SecurityLattice(), programVariables(cfg)), cfg, DataFlowDirection.FORWARD);
+        super(new EnumStoreLattice<>(new SecurityLattice(), SecurityLevel.class, programVariables(cfg)), cfg, DataFlowDirection.FORWARD);
     }
 
     private static Set<String> programVariables(ControlFlowGraph cfg) {
@@ -62,12 +62,16 @@ class InformationFlowAnalysis extends BasicDataFlowAnalysis<Map<String,SecurityL
         return res;
     }
 
+    /** stores have a fixed set of variables, so edits must not introduce new ones. */
+    @Override
+    boolean refresh(Set<Integer> changedBlocks) {
+        return this.lattice.hasVariables(statementVariables(changedBlocks));
+    }
+
     @Override
     Map<String, SecurityLevel> transfer(AtomicStatement statement, Map<String, SecurityLevel> input) {
         if (statement instanceof Assign assign) {
-            var res = new HashMap<>(input);
-            res.put(assign.var, assign.rhs.accept(new InformationFlowEvalVisitor(input)));
-            return res;
+            return this.lattice.update(input, assign.var, assign.rhs.accept(new InformationFlowEvalVisitor(input)));
 
         } else if (statement instanceof Output output) {
             SecurityLevel level = output.expr.accept(new InformationFlowEvalVisitor(input));
@@ -91,16 +95,21 @@ class InformationFlowChecker {
         var solution = ifcAnalysis.analyze();
 
         for (var block : cfg.blockMap.values()) {
-            if (block.statements.size() == 1) {
-                if (block.statements.getFirst() instanceof Output output) {
-                    // this technically uses the store *after* output is executed, but since
-                    // output does not change the store anyway it does not matter
-                    var store = solution.get(block.id);
-                    var level = output.expr.accept(new InformationFlowEvalVisitor(store));
+            List<Map<String, SecurityLevel>> facts = null;
+            int i = 0;
+            for (var statement : block.statements) {
+                if (statement instanceof Output output) {
+                    if (facts == null) {
+                        facts = ifcAnalysis.statementFacts(solution, block.id);
+                    }
+
+                    // the store just before the output, since blocks may hold several statements
+                    var level = output.expr.accept(new InformationFlowEvalVisitor(facts.get(i)));
                     if (level == SecurityLevel.SECRET) {
                         return false;
                     }
                 }
+                i++;
             }
         }
 
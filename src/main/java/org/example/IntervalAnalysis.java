@@ -0,0 +1,101 @@
+package org.example;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/** store lattice over a lattice with widening, which widens and narrows stores pointwise. */
+class WideningStoreLattice<T, L extends WideningLattice<T>> extends StoreLattice<T, L> implements WideningLattice<Map<String, T>> {
+    WideningStoreLattice(L lattice, Set<String> variables) {
+        super(lattice, variables);
+    }
+
+    @Override
+    public Map<String, T> widen(Map<String, T> previous, Map<String, T> next) {
+        return persistent(previous).merge(persistent(next), this.lattice::widen);
+    }
+
+    @Override
+    public Map<String, T> narrow(Map<String, T> previous, Map<String, T> next) {
+        return persistent(previous).merge(persistent(next), this.lattice::narrow);
+    }
+}
+
+/** computes bounds of the values of variables at specific program points.
+ *  Loop heads are widened, so the analysis terminates although intervals have infinite ascending chains. */
+class IntervalAnalysis extends BasicDataFlowAnalysis<Map<String, Interval>, WideningStoreLattice<Interval, IntervalLattice>> {
+    IntervalAnalysis(ControlFlowGraph cfg) {
+        super(new WideningStoreLattice<>(new IntervalLattice(), cfgVariables(cfg)), cfg, DataFlowDirection.FORWARD);
+    }
+
+    private static Set<String> cfgVariables(ControlFlowGraph cfg) {
+        var variables = new HashSet<String>();
+        var stmtVisitor = new StatementVariables();
+
+        for (var block : cfg.blockMap.values()) {
+            for (var stmt : block.statements) {
+                variables.addAll(stmt.accept(stmtVisitor));
+            }
+        }
+
+        return variables;
+    }
+
+    @Override
+    Map<String, Interval> transfer(AtomicStatement statement, Map<String, Interval> input) {
+        if (statement instanceof Assign assign) {
+            return this.lattice.update(input, assign.var, assign.rhs.accept(new EvalVisitor(input)));
+
+        } else if (statement instanceof Output) {
+            return input;
+
+        } else {
+            throw new RuntimeException("unknown statement variant");
+        }
+    }
+
+    @Override
+    Map<String, Interval> transfer(Expression guard, Map<String, Interval> input) {
+        return input;
+    }
+
+    /** stores have a fixed set of variables, so edits must not introduce new ones. */
+    @Override
+    boolean refresh(Set<Integer> changedBlocks) {
+        return this.lattice.variables.containsAll(statementVariables(changedBlocks));
+    }
+
+    private static class EvalVisitor implements ValueExpressionVisitor<Interval> {
+        Map<String, Interval> store;
+
+        EvalVisitor(Map<String, Interval> store) {
+            this.store = store;
+        }
+
+        @Override
+        public Interval visitInput() {
+            return Interval.TOP;
+        }
+
+        @Override
+        public Interval visitLiteral(int value) {
+            return Interval.constant(value);
+        }
+
+        @Override
+        public Interval visitVar(String name) {
+            assert(this.store.containsKey(name));
+            return this.store.get(name);
+        }
+
+        @Override
+        public Interval visitAdd(Interval lhs, Interval rhs) {
+            return lhs.add(rhs);
+        }
+
+        @Override
+        public Interval visitMultiply(Interval lhs, Interval rhs) {
+            return lhs.multiply(rhs);
+        }
+    }
+}
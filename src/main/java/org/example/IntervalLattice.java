@@ -0,0 +1,188 @@
+package org.example;
+
+import java.util.Set;
+
+/** Interval of integers [lo, hi], where Long.MIN_VALUE and Long.MAX_VALUE stand for minus and plus infinity. */
+final class Interval {
+    static final Interval EMPTY = new Interval(1, 0);
+    static final Interval TOP = new Interval(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private static final long NEG_INF = Long.MIN_VALUE;
+    private static final long POS_INF = Long.MAX_VALUE;
+
+    final long lo;
+    final long hi;
+
+    private Interval(long lo, long hi) {
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    static Interval of(long lo, long hi) {
+        return lo > hi ? EMPTY : new Interval(lo, hi);
+    }
+
+    static Interval constant(long value) {
+        return new Interval(value, value);
+    }
+
+    boolean isEmpty() {
+        return this.lo > this.hi;
+    }
+
+    boolean contains(long value) {
+        return this.lo <= value && value <= this.hi;
+    }
+
+    Interval join(Interval other) {
+        if (this.isEmpty()) {
+            return other;
+
+        } else if (other.isEmpty()) {
+            return this;
+
+        } else {
+            return of(Math.min(this.lo, other.lo), Math.max(this.hi, other.hi));
+        }
+    }
+
+    Interval add(Interval other) {
+        if (this.isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+
+        long lo = this.lo == NEG_INF || other.lo == NEG_INF ? NEG_INF : saturatedAdd(this.lo, other.lo);
+        long hi = this.hi == POS_INF || other.hi == POS_INF ? POS_INF : saturatedAdd(this.hi, other.hi);
+        return of(lo, hi);
+    }
+
+    Interval multiply(Interval other) {
+        if (this.isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+
+        long[] products = {
+            saturatedMultiply(this.lo, other.lo),
+            saturatedMultiply(this.lo, other.hi),
+            saturatedMultiply(this.hi, other.lo),
+            saturatedMultiply(this.hi, other.hi)
+        };
+
+        long lo = products[0];
+        long hi = products[0];
+        for (long product : products) {
+            lo = Math.min(lo, product);
+            hi = Math.max(hi, product);
+        }
+        return of(lo, hi);
+    }
+
+    /** sum of two finite bounds; overflows go to the infinities. */
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            return a < 0 ? NEG_INF : POS_INF;
+        }
+        return sum;
+    }
+
+    /** product of two bounds, either of which may be infinite; overflows go to the infinities. */
+    private static long saturatedMultiply(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+
+        boolean negative = (a < 0) != (b < 0);
+        if (a == NEG_INF || a == POS_INF || b == NEG_INF || b == POS_INF) {
+            return negative ? NEG_INF : POS_INF;
+        }
+
+        long high = Math.multiplyHigh(a, b);
+        long product = a * b;
+        if ((high == 0 && product >= 0) || (high == -1 && product < 0)) {
+            return product;
+        }
+        return negative ? NEG_INF : POS_INF;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof Interval otherInterval) {
+            return (this.isEmpty() && otherInterval.isEmpty())
+                || (this.lo == otherInterval.lo && this.hi == otherInterval.hi);
+
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return this.isEmpty() ? 0 : Long.hashCode(this.lo) * 31 + Long.hashCode(this.hi);
+    }
+
+    @Override
+    public String toString() {
+        if (this.isEmpty()) {
+            return "empty";
+        }
+
+        return String.format(
+            "[%s, %s]",
+            this.lo == NEG_INF ? "-inf" : String.valueOf(this.lo),
+            this.hi == POS_INF ? "+inf" : String.valueOf(this.hi)
+        );
+    }
+}
+
+/** lattice of integer intervals ordered by inclusion (bottom is the empty interval).
+ *  It has infinite ascending chains, so it comes with the standard widening and narrowing operators. */
+class IntervalLattice implements WideningLattice<Interval> {
+    @Override
+    public Interval join(Set<Interval> elements) {
+        var res = Interval.EMPTY;
+        for (Interval element : elements) {
+            res = res.join(element);
+        }
+        return res;
+    }
+
+    @Override
+    public Interval join(Interval element1, Interval element2) {
+        return element1.join(element2);
+    }
+
+    @Override
+    public Interval bottom() {
+        return Interval.EMPTY;
+    }
+
+    /** bounds that grew jump to infinity. */
+    @Override
+    public Interval widen(Interval previous, Interval next) {
+        if (previous.isEmpty()) {
+            return next;
+
+        } else if (next.isEmpty()) {
+            return previous;
+        }
+
+        return Interval.of(
+            next.lo < previous.lo ? Long.MIN_VALUE : previous.lo,
+            next.hi > previous.hi ? Long.MAX_VALUE : previous.hi
+        );
+    }
+
+    /** infinite bounds are replaced by those of {@param next}. */
+    @Override
+    public Interval narrow(Interval previous, Interval next) {
+        if (previous.isEmpty() || next.isEmpty()) {
+            return next;
+        }
+
+        return Interval.of(
+            previous.lo == Long.MIN_VALUE ? next.lo : previous.lo,
+            previous.hi == Long.MAX_VALUE ? next.hi : previous.hi
+        );
+    }
+}
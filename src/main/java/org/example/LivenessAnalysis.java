@@ -1,26 +1,43 @@
 package org.example;
 
-import java.util.HashSet;
 import java.util.Set;
 
 /** Backwards may-analysis that computes live variables at every program point. */
-class LivenessAnalysis extends BasicDataFlowAnalysis<Set<String>, PowersetLattice<String>> {
+class LivenessAnalysis extends GenKillAnalysis<String, BitSetPowersetLattice<String>> {
     LivenessAnalysis(ControlFlowGraph cfg) {
-        super(new PowersetLattice<>(), cfg, DataFlowDirection.BACKWARD);
+        this(programVariables(cfg), cfg);
+    }
+
+    private LivenessAnalysis(ElementIndex<String> index, ControlFlowGraph cfg) {
+        super(new BitSetPowersetLattice<>(index), index, cfg, DataFlowDirection.BACKWARD);
+    }
+
+    private static ElementIndex<String> programVariables(ControlFlowGraph cfg) {
+        var index = new ElementIndex<String>();
+        for (var block : cfg.blockMap.values()) {
+            for (var stmt : block.statements) {
+                for (var var : stmt.accept(new StatementVariables())) {
+                    index.add(var);
+                }
+            }
+
+            if (block.jump instanceof ConditionalJump jump) {
+                for (var var : jump.guard.accept(new ExpressionVariables())) {
+                    index.add(var);
+                }
+            }
+        }
+
+        return index;
     }
 
     @Override
-    Set<String> transfer(AtomicStatement statement, Set<String> input) {
+    Set<String> gen(BasicBlock block, AtomicStatement statement) {
         if (statement instanceof Assign assign) {
-            var res = new HashSet<>(input);
-            res.remove(assign.var);
-            res.addAll(assign.rhs.accept(new ExpressionVariables()));
-            return res;
+            return assign.rhs.accept(new ExpressionVariables());
 
         } else if (statement instanceof Output output) {
-            var res = new HashSet<>(input);
-            res.addAll(output.expr.accept(new ExpressionVariables()));
-            return res;
+            return output.expr.accept(new ExpressionVariables());
 
         } else {
             throw new RuntimeException("unknown statement type");
@@ -28,9 +45,17 @@ class LivenessAnalysis extends BasicDataFlowAnalysis<Set<String>, PowersetLattic
     }
 
     @Override
-    Set<String> transfer(Expression guard, Set<String> input) {
-        var output = new HashSet<>(input);
-        output.addAll(guard.accept(new ExpressionVariables()));
-        return output;
+    Set<String> kill(BasicBlock block, AtomicStatement statement) {
+        if (statement instanceof Assign assign) {
+            return Set.of(assign.var);
+
+        } else {
+            return Set.of();
+        }
+    }
+
+    @Override
+    Set<String> gen(Expression guard) {
+        return guard.accept(new ExpressionVariables());
     }
 }
@@ -1,19 +1,185 @@
 package org.example;
 
-// Press Shift twice to open the Search Everywhere dialog and type `show whitespaces`,
-// then press Enter. You can now see whitespace characters in your code.
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/** Command line entry point: parses programs in the concrete syntax, builds their CFGs and runs analyses on them,
+ *  reporting the time spent parsing, building the CFG and solving each analysis. */
 public class Main {
+    static final String USAGE = String.join("\n",
+        "usage: dataflow [options] FILE...",
+        "  FILE                 program in the concrete syntax (see README), or - for standard input",
+        "  --cfg atomic|basic   build a CFG of atomic statements or of basic blocks (default: basic)",
+        "  --analyses A,B,...   analyses to run, or all (default: all); one of",
+        "                       %s",
+        "  --strategy S         solver strategy: fifo, rpo, wto or parallel (default: rpo)",
+        "  --print              print the solution of every analysis",
+        "  --cache DIR          reuse solutions cached in DIR by earlier runs, and cache new ones there"
+    );
+
+    // bounds of the tiers of the cache used with --cache
+    static final long CACHE_MEMORY_BYTES = 256L << 20;
+    static final long CACHE_DISK_BYTES = 4L << 30;
+
+    static LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>> analyses() {
+        var res = new LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>>();
+        res.put("liveness", LivenessAnalysis::new);
+        res.put("reaching-definitions", ReachingDefinitionsAnalysis::new);
+        res.put("available-expressions", AvailableExpressionsAnalysis::new);
+        res.put("very-busy-expressions", VeryBusyExpressionsAnalysis::new);
+        res.put("sign", SignAnalysis::new);
+        res.put("information-flow", InformationFlowAnalysis::new);
+        res.put("interval", IntervalAnalysis::new);
+        return res;
+    }
+
     public static void main(String[] args) {
-        // Press Opt+Enter with your caret at the highlighted text to see how
-        // IntelliJ IDEA suggests fixing it.
-        System.out.print("Hello and welcome!");
+        System.exit(run(args, System.out, System.err));
+    }
 
-        // Press Ctrl+R or click the green arrow button in the gutter to run the code.
-        for (int i = 1; i <= 5; i++) {
+    /** run the command line {@param args} and return the exit status: 0 on success, 1 if a program could not be
+     *  read or parsed, and 2 for invalid arguments. */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        var analyses = analyses();
+        var usage = String.format(USAGE, String.join(", ", analyses.keySet()));
+
+        boolean basicBlocks = true;
+        var strategy = SolverStrategy.REVERSE_POSTORDER;
+        var selected = new ArrayList<String>(analyses.keySet());
+        boolean print = false;
+        String cacheDirectory = null;
+        var files = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            var arg = args[i];
+            if (Set.of("--cfg", "--analyses", "--strategy", "--cache").contains(arg) && i + 1 == args.length) {
+                err.printf("missing value for %s%n%s%n", arg, usage);
+                return 2;
+            }
+
+            switch (arg) {
+                case "--cfg" -> {
+                    i += 1;
+                    switch (args[i]) {
+                        case "atomic" -> basicBlocks = false;
+                        case "basic" -> basicBlocks = true;
+                        default -> {
+                            err.printf("unknown CFG kind %s%n%s%n", args[i], usage);
+                            return 2;
+                        }
+                    }
+                }
+                case "--analyses" -> {
+                    i += 1;
+                    selected.clear();
+                    if (args[i].equals("all")) {
+                        selected.addAll(analyses.keySet());
+                        continue;
+                    }
+                    for (var name : args[i].split(",")) {
+                        if (!analyses.containsKey(name)) {
+                            err.printf("unknown analysis %s%n%s%n", name, usage);
+                            return 2;
+                        }
+                        selected.add(name);
+                    }
+                }
+                case "--strategy" -> {
+                    i += 1;
+                    switch (args[i]) {
+                        case "fifo" -> strategy = SolverStrategy.FIFO;
+                        case "rpo" -> strategy = SolverStrategy.REVERSE_POSTORDER;
+                        case "wto" -> strategy = SolverStrategy.WEAK_TOPOLOGICAL;
+                        case "parallel" -> strategy = SolverStrategy.PARALLEL;
+                        default -> {
+                            err.printf("unknown strategy %s%n%s%n", args[i], usage);
+                            return 2;
+                        }
+                    }
+                }
+                case "--print" -> print = true;
+                case "--cache" -> {
+                    i += 1;
+                    cacheDirectory = args[i];
+                }
+                default -> {
+                    if (arg.startsWith("--")) {
+                        err.printf("unknown option %s%n%s%n", arg, usage);
+                        return 2;
+                    }
+                    files.add(arg);
+                }
+            }
+        }
+
+        if (files.isEmpty()) {
+            err.println(usage);
+            return 2;
+        }
+
+        AnalysisCache cache = null;
+        if (cacheDirectory != null) {
+            try {
+                cache = new AnalysisCache(CACHE_MEMORY_BYTES, Path.of(cacheDirectory), CACHE_DISK_BYTES);
+
+            } catch (IOException | RuntimeException e) {
+                err.printf("cannot use cache %s: %s%n", cacheDirectory, e.getMessage());
+                return 2;
+            }
+        }
+
+        int status = 0;
+        for (var file : files) {
+            long start = System.nanoTime();
+            Block program;
+            try {
+                if (file.equals("-")) {
+                    program = new Parser(new InputStreamReader(System.in, StandardCharsets.UTF_8)).parseProgram();
+
+                } else {
+                    program = Parser.parse(Path.of(file));
+                }
+
+            } catch (IOException | RuntimeException e) {
+                err.printf("%s: %s%n", file, e.getMessage());
+                status = 1;
+                continue;
+            }
+            long parseNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var cfg = basicBlocks ? new BasicBlockCFGBuilder().buildCFG(program) : new AtomicCFGBuilder().buildCFG(program);
+            long cfgNanos = System.nanoTime() - start;
+            out.printf("%s: parse %.3f ms, cfg %.3f ms (%d blocks)%n", file, parseNanos / 1e6, cfgNanos / 1e6, cfg.blockMap.size());
+
+            for (var name : selected) {
+                start = System.nanoTime();
+                var analysis = analyses.get(name).apply(cfg);
+                var solution = cache == null ? analysis.analyze(strategy) : cache.analyze(analysis, strategy);
+                long solveNanos = System.nanoTime() - start;
+                if (analysis.solver == null) {
+                    out.printf("  %s: cached %.3f ms%n", name, solveNanos / 1e6);
+
+                } else {
+                    out.printf("  %s: solve %.3f ms (%d iterations)%n", name, solveNanos / 1e6, analysis.solver.iterations);
+                }
+
+                if (print) {
+                    for (int blockId : new TreeSet<>(solution.keySet())) {
+                        out.printf("    %d: %s%n", blockId, solution.get(blockId));
+                    }
+                }
+            }
+        }
 
-            // Press Ctrl+D to start debugging your code. We have set one breakpoint
-            // for you, but you can always add more by pressing Cmd+F8.
-            System.out.println("i = " + i);
+        if (cache != null) {
+            out.printf("cache: %s%n", cache);
         }
+        return status;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,475 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Tokens of the concrete syntax. Keywords are recognized by the lexer, so they cannot be variable names. */
+enum TokenKind {
+    IDENTIFIER("identifier"), NUMBER("number"),
+    IF("if"), THEN("then"), ELSE("else"), WHILE("while"), OUTPUT("output"), INPUT("input"),
+    ASSIGN(":="), SEMICOLON(";"), PLUS("+"), STAR("*"), LEFT_PAREN("("), RIGHT_PAREN(")"), LEFT_BRACE("{"), RIGHT_BRACE("}"),
+    END("end of input");
+
+    // how the token is shown in error messages
+    final String text;
+
+    TokenKind(String text) {
+        this.text = text;
+    }
+}
+
+/** Lexer that reads its source through a fixed-size buffer, so sources of any size can be streamed.
+ *  Identifiers are looked up in a table of names seen before, so each distinct name is allocated once. */
+class Lexer {
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    // identifier characters of the current token
+    private char[] name = new char[32];
+    private int nameLength;
+
+    // open-addressing table of the names seen so far, and of keywords
+    private String[] names = new String[64];
+    private TokenKind[] nameKinds = new TokenKind[64];
+    private int numNames;
+
+    // current token, with its position, value (for numbers) and text (for identifiers)
+    TokenKind kind;
+    int line = 1;
+    int column;
+    int value;
+    String text;
+
+    // position of the next character
+    private int nextLine = 1;
+    private int nextColumn = 1;
+
+    Lexer(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+
+        for (var keyword : new TokenKind[] {TokenKind.IF, TokenKind.THEN, TokenKind.ELSE, TokenKind.WHILE, TokenKind.OUTPUT, TokenKind.INPUT}) {
+            addName(keyword.text, keyword);
+        }
+    }
+
+    Lexer(Reader reader) {
+        this(reader, 1 << 16);
+    }
+
+    /** return the next character without consuming it, or -1 at the end of the source. */
+    private int peek() {
+        if (this.position == this.limit) {
+            try {
+                int read;
+                do {
+                    read = this.reader.read(this.buffer, 0, this.buffer.length);
+                } while (read == 0);
+
+                if (read < 0) {
+                    return -1;
+                }
+                this.position = 0;
+                this.limit = read;
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this.buffer[this.position];
+    }
+
+    private char consume() {
+        char c = this.buffer[this.position];
+        this.position += 1;
+        if (c == '\n') {
+            this.nextLine += 1;
+            this.nextColumn = 1;
+
+        } else {
+            this.nextColumn += 1;
+        }
+        return c;
+    }
+
+    RuntimeException error(String message) {
+        return new RuntimeException(String.format("%d:%d: %s", this.line, this.column, message));
+    }
+
+    /** advance to the next token. */
+    void next() {
+        // skip whitespace and comments, which run from # to the end of the line
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '#') {
+            if (consume() == '#') {
+                while ((c = peek()) != -1 && c != '\n') {
+                    consume();
+                }
+            }
+            c = peek();
+        }
+
+        this.line = this.nextLine;
+        this.column = this.nextColumn;
+        this.text = null;
+        if (c == -1) {
+            this.kind = TokenKind.END;
+            return;
+        }
+
+        if (Character.isLetter(c) || c == '_') {
+            this.nameLength = 0;
+            while ((c = peek()) != -1 && (Character.isLetterOrDigit(c) || c == '_' || c == '.')) {
+                if (this.nameLength == this.name.length) {
+                    this.name = Arrays.copyOf(this.name, this.nameLength * 2);
+                }
+                this.name[this.nameLength] = consume();
+                this.nameLength += 1;
+            }
+            lookupName();
+            return;
+        }
+
+        if (isDigit(c) || c == '-') {
+            lexNumber();
+            return;
+        }
+
+        consume();
+        this.kind = switch (c) {
+            case ';' -> TokenKind.SEMICOLON;
+            case '+' -> TokenKind.PLUS;
+            case '*' -> TokenKind.STAR;
+            case '(' -> TokenKind.LEFT_PAREN;
+            case ')' -> TokenKind.RIGHT_PAREN;
+            case '{' -> TokenKind.LEFT_BRACE;
+            case '}' -> TokenKind.RIGHT_BRACE;
+            case ':' -> {
+                if (peek() != '=') {
+                    throw error("expected := but found :");
+                }
+                consume();
+                yield TokenKind.ASSIGN;
+            }
+            default -> throw error(String.format("unexpected character '%c'", (char) c));
+        };
+    }
+
+    /** whether {@param c} is an ASCII digit; Character.isDigit also accepts digits of other scripts. */
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void lexNumber() {
+        boolean negative = false;
+        if (peek() == '-') {
+            consume();
+            negative = true;
+            if (!isDigit(peek())) {
+                throw error("expected a digit after -");
+            }
+        }
+
+        long value = 0;
+        int c;
+        while (isDigit(c = peek())) {
+            consume();
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw error("integer literal out of range");
+            }
+        }
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error("integer literal out of range");
+        }
+        this.kind = TokenKind.NUMBER;
+        this.value = (int) value;
+    }
+
+    /** set the current token from the identifier characters in name, adding new names to the table. */
+    private void lookupName() {
+        int hash = 0;
+        for (int i = 0; i < this.nameLength; i++) {
+            hash = 31 * hash + this.name[i];
+        }
+
+        int mask = this.names.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            var candidate = this.names[slot];
+            if (candidate == null) {
+                var text = new String(this.name, 0, this.nameLength);
+                this.text = addName(text, TokenKind.IDENTIFIER);
+                this.kind = TokenKind.IDENTIFIER;
+                return;
+            }
+
+            if (sameName(candidate)) {
+                this.kind = this.nameKinds[slot];
+                this.text = candidate;
+                return;
+            }
+        }
+    }
+
+    private boolean sameName(String candidate) {
+        if (candidate.length() != this.nameLength) {
+            return false;
+        }
+        for (int i = 0; i < this.nameLength; i++) {
+            if (candidate.charAt(i) != this.name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String addName(String text, TokenKind kind) {
+        if (2 * (this.numNames + 1) > this.names.length) {
+            var oldNames = this.names;
+            var oldKinds = this.nameKinds;
+            this.names = new String[oldNames.length * 2];
+            this.nameKinds = new TokenKind[oldNames.length * 2];
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) {
+                    insert(oldNames[i], oldKinds[i]);
+                }
+            }
+        }
+
+        insert(text, kind);
+        this.numNames += 1;
+        return text;
+    }
+
+    private void insert(String text, TokenKind kind) {
+        // String.hashCode is the same polynomial hash as the one computed in lookupName
+        int mask = this.names.length - 1;
+        int slot = text.hashCode() & mask;
+        while (this.names[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        this.names[slot] = text;
+        this.nameKinds[slot] = kind;
+    }
+}
+
+/** Recursive descent parser for the concrete syntax described in the README, which is also what
+ *  {@link Block#toString()} prints. Top-level statements can be pulled one at a time with {@link #nextStatement()},
+ *  so a client does not need to hold more than one of them. Variables are shared between all their occurrences. */
+class Parser {
+    // deepest nesting of parentheses and blocks accepted, well within the stack of the recursive descent
+    static final int MAX_DEPTH = 1000;
+
+    private final Lexer lexer;
+    private final HashMap<String, Var> vars;
+    private final Input input;
+
+    // whether the last statement parsed ended with a closing brace, after which a semicolon is optional
+    private boolean endedWithBrace;
+
+    // number of parentheses and blocks open at the current token
+    private int depth;
+
+    Parser(Reader reader) {
+        this(new Lexer(reader));
+    }
+
+    Parser(Lexer lexer) {
+        this.lexer = lexer;
+        this.vars = new HashMap<>();
+        this.input = new Input();
+        this.lexer.next();
+    }
+
+    static Block parse(String source) {
+        return new Parser(new StringReader(source)).parseProgram();
+    }
+
+    static Block parse(Path file) throws IOException {
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new Parser(reader).parseProgram();
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** parse the whole source as a program. */
+    Block parseProgram() {
+        var statements = new ArrayList<Statement>();
+        Statement statement;
+        while ((statement = nextStatement()) != null) {
+            statements.add(statement);
+        }
+        return new Block(statements);
+    }
+
+    /** return the next top-level statement, or null at the end of the source. */
+    Statement nextStatement() {
+        if (this.lexer.kind == TokenKind.END) {
+            return null;
+        }
+
+        var res = statement();
+        endStatement(TokenKind.END);
+        return res;
+    }
+
+    /** after a statement, expect a semicolon unless the statement ended with a brace or comes last. */
+    private void endStatement(TokenKind last) {
+        if (this.lexer.kind == TokenKind.SEMICOLON) {
+            this.lexer.next();
+
+        } else if (this.lexer.kind != last && !this.endedWithBrace) {
+            throw this.lexer.error(String.format("expected ; but found %s", describe()));
+        }
+    }
+
+    private Statement statement() {
+        this.endedWithBrace = false;
+        switch (this.lexer.kind) {
+            case IDENTIFIER -> {
+                var var = this.lexer.text;
+                this.lexer.next();
+                expect(TokenKind.ASSIGN);
+                return new Assign(var, expression());
+            }
+            case OUTPUT -> {
+                this.lexer.next();
+                expect(TokenKind.LEFT_PAREN);
+                var expr = expression();
+                expect(TokenKind.RIGHT_PAREN);
+                return new Output(expr);
+            }
+            case IF -> {
+                this.lexer.next();
+                var guard = guard();
+                if (this.lexer.kind == TokenKind.THEN) {
+                    this.lexer.next();
+                }
+                var thenBranch = block();
+
+                Block elseBranch;
+                if (this.lexer.kind == TokenKind.ELSE) {
+                    this.lexer.next();
+                    elseBranch = block();
+
+                } else {
+                    elseBranch = new Block(new ArrayList<>());
+                }
+                this.endedWithBrace = true;
+                return new Conditional(guard, thenBranch, elseBranch);
+            }
+            case WHILE -> {
+                this.lexer.next();
+                var guard = guard();
+                var body = block();
+                this.endedWithBrace = true;
+                return new While(guard, body);
+            }
+            default -> throw this.lexer.error(String.format("expected a statement but found %s", describe()));
+        }
+    }
+
+    private Expression guard() {
+        expect(TokenKind.LEFT_PAREN);
+        var guard = expression();
+        expect(TokenKind.RIGHT_PAREN);
+        return guard;
+    }
+
+    private Block block() {
+        enter();
+        expect(TokenKind.LEFT_BRACE);
+        var statements = new ArrayList<Statement>();
+        while (this.lexer.kind != TokenKind.RIGHT_BRACE) {
+            statements.add(statement());
+            endStatement(TokenKind.RIGHT_BRACE);
+        }
+        this.lexer.next();
+        this.depth -= 1;
+        return new Block(statements);
+    }
+
+    /** sums of products; both operators associate to the left. */
+    private Expression expression() {
+        var res = product();
+        while (this.lexer.kind == TokenKind.PLUS) {
+            this.lexer.next();
+            res = new Add(res, product());
+        }
+        return res;
+    }
+
+    private Expression product() {
+        var res = primary();
+        while (this.lexer.kind == TokenKind.STAR) {
+            this.lexer.next();
+            res = new Multiply(res, primary());
+        }
+        return res;
+    }
+
+    private Expression primary() {
+        switch (this.lexer.kind) {
+            case IDENTIFIER -> {
+                var var = this.vars.computeIfAbsent(this.lexer.text, Var::new);
+                this.lexer.next();
+                return var;
+            }
+            case NUMBER -> {
+                var literal = new Literal(this.lexer.value);
+                this.lexer.next();
+                return literal;
+            }
+            case INPUT -> {
+                this.lexer.next();
+                return this.input;
+            }
+            case LEFT_PAREN -> {
+                enter();
+                this.lexer.next();
+                var expr = expression();
+                expect(TokenKind.RIGHT_PAREN);
+                this.depth -= 1;
+                return expr;
+            }
+            default -> throw this.lexer.error(String.format("expected an expression but found %s", describe()));
+        }
+    }
+
+    /** open a parenthesis or block, failing at the current token if that nests too deeply. */
+    private void enter() {
+        if (this.depth == MAX_DEPTH) {
+            throw this.lexer.error(String.format("nesting deeper than %d", MAX_DEPTH));
+        }
+        this.depth += 1;
+    }
+
+    private void expect(TokenKind kind) {
+        if (this.lexer.kind != kind) {
+            throw this.lexer.error(String.format("expected %s but found %s", kind.text, describe()));
+        }
+        this.lexer.next();
+    }
+
+    private String describe() {
+        return switch (this.lexer.kind) {
+            case IDENTIFIER -> this.lexer.text;
+            case NUMBER -> String.valueOf(this.lexer.value);
+            default -> this.lexer.kind.text;
+        };
+    }
+}
@@ -0,0 +1,419 @@
+package org.example;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+
+/** Immutable hash array mapped trie. Updates copy only the path to the updated key and share everything else,
+ *  so derived maps share most of their structure; equality and merging skip physically identical subtrees.
+ *  Since keys are never removed, the shape of the trie depends only on its key set. */
+class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    /** A key-value pair. */
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /** Interior node with one slot per set bit of the bitmap; slots hold leaves, nodes or collisions. */
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    /** Leaves whose keys have the same full hash code. */
+    private static final class Collision {
+        final int hash;
+        final Leaf[] leaves;
+
+        Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    // a Leaf, Node or Collision; null for the empty map
+    private final Object root;
+    private final int size;
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /** return a persistent map with the same entries as {@param map}. */
+    static <K, V> PersistentMap<K, V> of(Map<K, V> map) {
+        if (map instanceof PersistentMap<K, V> persistent) {
+            return persistent;
+        }
+
+        PersistentMap<K, V> res = empty();
+        for (Map.Entry<K, V> kv : map.entrySet()) {
+            res = res.plus(kv.getKey(), kv.getValue());
+        }
+        return res;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int position(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    /** return a map that maps {@param key} to {@param value} and is otherwise the same as this one. */
+    PersistentMap<K, V> plus(K key, V value) {
+        int[] added = new int[1];
+        Object newRoot = insert(this.root, 0, new Leaf(hash(key), key, value), added);
+        return newRoot == this.root ? this : new PersistentMap<>(newRoot, this.size + added[0]);
+    }
+
+    /** return a map with the keys of both maps, where keys in both are mapped to the result of {@param op}.
+     *  Subtrees that are physically shared by both maps are reused without being visited. */
+    @SuppressWarnings("unchecked")
+    PersistentMap<K, V> merge(PersistentMap<K, V> other, BinaryOperator<V> op) {
+        int[] added = new int[1];
+        Object newRoot = merge(this.root, other.root, 0, (BinaryOperator<Object>) op, added);
+        if (newRoot == this.root) {
+            return this;
+
+        } else if (newRoot == other.root) {
+            return other;
+
+        } else {
+            return new PersistentMap<>(newRoot, this.size + added[0]);
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Leaf leaf = find(key);
+        return leaf == null ? null : cast(leaf.value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object value) {
+        return (V) value;
+    }
+
+    private Leaf find(Object key) {
+        int hash = hash(key);
+        Object node = this.root;
+        int shift = 0;
+
+        while (node != null) {
+            if (node instanceof Node n) {
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((n.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = n.slots[position(n.bitmap, bit)];
+                shift += BITS;
+
+            } else if (node instanceof Leaf leaf) {
+                return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+
+            } else {
+                var collision = (Collision) node;
+                if (collision.hash != hash) {
+                    return null;
+                }
+                for (Leaf leaf : collision.leaves) {
+                    if (leaf.key.equals(key)) {
+                        return leaf;
+                    }
+                }
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    private static Object insert(Object node, int shift, Leaf leaf, int[] added) {
+        if (node == null) {
+            added[0] += 1;
+            return leaf;
+
+        } else if (node instanceof Node n) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int pos = position(n.bitmap, bit);
+
+            if ((n.bitmap & bit) == 0) {
+                var slots = new Object[n.slots.length + 1];
+                System.arraycopy(n.slots, 0, slots, 0, pos);
+                slots[pos] = leaf;
+                System.arraycopy(n.slots, pos, slots, pos + 1, n.slots.length - pos);
+                added[0] += 1;
+                return new Node(n.bitmap | bit, slots);
+            }
+
+            Object child = n.slots[pos];
+            Object newChild = insert(child, shift + BITS, leaf, added);
+            if (newChild == child) {
+                return n;
+            }
+
+            var slots = n.slots.clone();
+            slots[pos] = newChild;
+            return new Node(n.bitmap, slots);
+
+        } else if (node instanceof Leaf existing) {
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                return existing.value == leaf.value ? existing : leaf;
+
+            } else if (existing.hash == leaf.hash) {
+                added[0] += 1;
+                return new Collision(leaf.hash, new Leaf[] { existing, leaf });
+
+            } else {
+                added[0] += 1;
+                return pair(existing, existing.hash, leaf, shift);
+            }
+
+        } else {
+            var collision = (Collision) node;
+            if (collision.hash != leaf.hash) {
+                added[0] += 1;
+                return pair(collision, collision.hash, leaf, shift);
+            }
+
+            for (int i = 0; i < collision.leaves.length; i++) {
+                if (collision.leaves[i].key.equals(leaf.key)) {
+                    if (collision.leaves[i].value == leaf.value) {
+                        return collision;
+                    }
+                    var leaves = collision.leaves.clone();
+                    leaves[i] = leaf;
+                    return new Collision(collision.hash, leaves);
+                }
+            }
+
+            var leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+            leaves[collision.leaves.length] = leaf;
+            added[0] += 1;
+            return new Collision(collision.hash, leaves);
+        }
+    }
+
+    /** build the smallest subtree containing {@param existing} (a leaf or collision) and {@param leaf},
+     *  whose hashes differ. */
+    private static Object pair(Object existing, int existingHash, Leaf leaf, int shift) {
+        int existingIndex = (existingHash >>> shift) & MASK;
+        int leafIndex = (leaf.hash >>> shift) & MASK;
+
+        if (existingIndex == leafIndex) {
+            return new Node(1 << existingIndex, new Object[] { pair(existing, existingHash, leaf, shift + BITS) });
+
+        } else if (existingIndex < leafIndex) {
+            return new Node((1 << existingIndex) | (1 << leafIndex), new Object[] { existing, leaf });
+
+        } else {
+            return new Node((1 << existingIndex) | (1 << leafIndex), new Object[] { leaf, existing });
+        }
+    }
+
+    private static Object merge(Object a, Object b, int shift, BinaryOperator<Object> op, int[] added) {
+        if (a == b || b == null) {
+            return a;
+
+        } else if (a == null) {
+            added[0] += countLeaves(b);
+            return b;
+
+        } else if (a instanceof Node na && b instanceof Node nb && na.bitmap == nb.bitmap) {
+            Object[] slots = null;
+            for (int i = 0; i < na.slots.length; i++) {
+                Object merged = merge(na.slots[i], nb.slots[i], shift + BITS, op, added);
+                if (merged != na.slots[i] && slots == null) {
+                    slots = na.slots.clone();
+                }
+                if (slots != null) {
+                    slots[i] = merged;
+                }
+            }
+
+            return slots == null ? na : new Node(na.bitmap, slots);
+
+        } else if (a instanceof Leaf la && b instanceof Leaf lb && la.hash == lb.hash && la.key.equals(lb.key)) {
+            Object value = op.apply(la.value, lb.value);
+            if (value == la.value) {
+                return la;
+
+            } else if (value == lb.value) {
+                return lb;
+
+            } else {
+                return new Leaf(la.hash, la.key, value);
+            }
+
+        } else {
+            // the subtrees have different shapes (so different key sets): insert the leaves of b one at a time
+            Object res = a;
+            for (Leaf leaf : leaves(b)) {
+                Leaf existing = findLeaf(res, leaf, shift);
+                Object value = existing == null ? leaf.value : op.apply(existing.value, leaf.value);
+                res = insert(res, shift, new Leaf(leaf.hash, leaf.key, value), added);
+            }
+            return res;
+        }
+    }
+
+    private static Leaf findLeaf(Object node, Leaf leaf, int shift) {
+        while (node instanceof Node n) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            if ((n.bitmap & bit) == 0) {
+                return null;
+            }
+            node = n.slots[position(n.bitmap, bit)];
+            shift += BITS;
+        }
+
+        for (Leaf candidate : leaves(node)) {
+            if (candidate.hash == leaf.hash && candidate.key.equals(leaf.key)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static int countLeaves(Object node) {
+        return leaves(node).size();
+    }
+
+    private static List<Leaf> leaves(Object node) {
+        var res = new ArrayList<Leaf>();
+        var stack = new ArrayDeque<Object>();
+        if (node != null) {
+            stack.push(node);
+        }
+
+        while (!stack.isEmpty()) {
+            Object cur = stack.pop();
+            if (cur instanceof Node n) {
+                for (int i = n.slots.length - 1; i >= 0; i--) {
+                    stack.push(n.slots[i]);
+                }
+
+            } else if (cur instanceof Leaf leaf) {
+                res.add(leaf);
+
+            } else {
+                res.addAll(Arrays.asList(((Collision) cur).leaves));
+            }
+        }
+
+        return res;
+    }
+
+    private static boolean nodesEqual(Object a, Object b) {
+        if (a == b) {
+            return true;
+
+        } else if (a instanceof Node na && b instanceof Node nb) {
+            if (na.bitmap != nb.bitmap) {
+                return false;
+            }
+            for (int i = 0; i < na.slots.length; i++) {
+                if (!nodesEqual(na.slots[i], nb.slots[i])) {
+                    return false;
+                }
+            }
+            return true;
+
+        } else if (a instanceof Leaf la && b instanceof Leaf lb) {
+            return la.hash == lb.hash && la.key.equals(lb.key) && Objects.equals(la.value, lb.value);
+
+        } else if (a instanceof Collision ca && b instanceof Collision cb) {
+            if (ca.hash != cb.hash || ca.leaves.length != cb.leaves.length) {
+                return false;
+            }
+            for (Leaf leaf : ca.leaves) {
+                Leaf other = findLeaf(cb, leaf, 0);
+                if (other == null || !Objects.equals(leaf.value, other.value)) {
+                    return false;
+                }
+            }
+            return true;
+
+        } else {
+            // since the shape of a trie only depends on its keys, different shapes mean different keys
+            return false;
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof PersistentMap<?, ?> otherMap) {
+            return this.size == otherMap.size && nodesEqual(this.root, otherMap.root);
+
+        } else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return PersistentMap.this.size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                var leaves = leaves(PersistentMap.this.root).iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return leaves.hasNext();
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<K, V> next() {
+                        Leaf leaf = leaves.next();
+                        return new AbstractMap.SimpleImmutableEntry<>((K) leaf.key, (V) leaf.value);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -13,4 +13,15 @@ class PowersetLattice<T> implements CompleteUpperSemiLattice<Set<T>> {
         }
         return res;
     }
+
+    @Override
+    public Set<T> startJoin() {
+        return new HashSet<>();
+    }
+
+    @Override
+    public Set<T> joinInto(Set<T> accumulator, Set<T> element) {
+        accumulator.addAll(element);
+        return accumulator;
+    }
 }
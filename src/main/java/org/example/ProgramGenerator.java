@@ -0,0 +1,102 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Generates random programs for benchmarks and tests. The same seed and settings always give the same program.
+ *  Every statement counts towards {@link #statements}, including loops and conditionals; literals are drawn from a
+ *  small range so that the number of distinct expressions grows with the number of variables, not with the size
+ *  of the program. */
+class ProgramGenerator {
+    private final Random random;
+
+    // number of statements of the program
+    int statements = 1000;
+
+    // maximum nesting depth of loops and conditionals, and the probability that a statement is one
+    int maxNesting = 3;
+    double controlProbability = 0.1;
+
+    // maximum number of statements in the body of a loop or a branch of a conditional
+    int maxBlockLength = 8;
+
+    // variables are named v0 .. v(variables-1)
+    int variables = 16;
+
+    // maximum depth of expression trees (0 for variables, literals and input)
+    int expressionDepth = 2;
+
+    // remaining statements of the program being generated
+    private int remaining;
+
+    ProgramGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /** return a program of {@param statements} statements, generated with the default settings. */
+    static Block generate(long seed, int statements) {
+        var generator = new ProgramGenerator(seed);
+        generator.statements = statements;
+        return generator.generate();
+    }
+
+    /** return a program of {@link #statements} statements. */
+    Block generate() {
+        this.remaining = this.statements;
+        var res = new ArrayList<Statement>();
+        while (this.remaining > 0) {
+            res.add(statement(0));
+        }
+        return new Block(res);
+    }
+
+    private Block block(int nesting) {
+        int length = 1 + this.random.nextInt(this.maxBlockLength);
+        var res = new ArrayList<Statement>();
+        for (int i = 0; i < length && this.remaining > 0; i++) {
+            res.add(statement(nesting));
+        }
+        return new Block(res);
+    }
+
+    private Statement statement(int nesting) {
+        this.remaining -= 1;
+        if (nesting < this.maxNesting && this.random.nextDouble() < this.controlProbability) {
+            if (this.random.nextBoolean()) {
+                return new While(expression(this.expressionDepth), block(nesting + 1));
+
+            } else {
+                return new Conditional(expression(this.expressionDepth), block(nesting + 1), block(nesting + 1));
+            }
+
+        } else if (this.random.nextInt(10) == 0) {
+            return new Output(expression(this.expressionDepth));
+
+        } else {
+            return new Assign(variable(), expression(this.expressionDepth));
+        }
+    }
+
+    private Expression expression(int depth) {
+        if (depth > 0 && this.random.nextInt(3) != 0) {
+            var lhs = expression(depth - 1);
+            var rhs = expression(depth - 1);
+            return this.random.nextBoolean() ? new Add(lhs, rhs) : new Multiply(lhs, rhs);
+        }
+
+        int leaf = this.random.nextInt(10);
+        if (leaf < 6) {
+            return new Var(variable());
+
+        } else if (leaf < 9) {
+            return new Literal(this.random.nextInt(9) - 4);
+
+        } else {
+            return new Input();
+        }
+    }
+
+    private String variable() {
+        return "v" + this.random.nextInt(this.variables);
+    }
+}
@@ -2,14 +2,16 @@ package org.example;
 
 import java.util.*;
 
-/** Unique assignment in a program. */
+/** Unique assignment in a program, identified by its block and its position in the block. */
 class Definition {
     int id;
+    int index;
     String var;
     Expression rhs;
 
-    Definition(int id, String var, Expression rhs) {
+    Definition(int id, int index, String var, Expression rhs) {
         this.id = id;
+        this.index = index;
         this.var = var;
         this.rhs = rhs;
     }
@@ -21,7 +23,8 @@ class Definition {
         }
 
         if (other instanceof Definition otherDef) {
-            return Objects.equals(this.id, otherDef.id)
+            return this.id == otherDef.id
+                && this.index == otherDef.index
                 && Objects.equals(this.var, otherDef.var)
                 && Objects.equals(this.rhs, otherDef.rhs);
 
@@ -32,54 +35,95 @@ class Definition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.id, this.var, this.rhs);
+        return Objects.hash(this.id, this.index, this.var, this.rhs);
     }
 
     @Override
     public String toString() {
-        return String.format("def(%d, %s, %s)", this.id, this.var, this.rhs);
+        return String.format("def(%d:%d, %s, %s)", this.id, this.index, this.var, this.rhs);
     }
 }
 
 /** Forward may-analysis that computes definitions (assignments) that could have influenced store at a program point. */
-class ReachingDefinitionsAnalysis extends DataFlowAnalysis<Set<Definition>, PowersetLattice<Definition>> {
+class ReachingDefinitionsAnalysis extends GenKillAnalysis<Definition, BitSetPowersetLattice<Definition>> {
+    // definitions of each variable, which an assignment to the variable kills
+    HashMap<String, IndexedSet<Definition>> variableDefinitions;
+
+    // definition made by each assignment in the CFG
+    IdentityHashMap<AtomicStatement, Definition> statementDefinitions;
+
     ReachingDefinitionsAnalysis(ControlFlowGraph cfg) {
-        super(new PowersetLattice<>(), cfg, DataFlowDirection.FORWARD);
+        this(programDefinitions(cfg), cfg);
     }
 
-    @Override
-    Set<Definition> transfer(BasicBlock block, Set<Definition> input) {
-        // assume that CFG blocks are atomic (contains either 0 or 1 statements)
-        if (block.statements.size() == 0) {
-            // conditional / while block; just propagate input
-            return input;
+    private ReachingDefinitionsAnalysis(ElementIndex<Definition> index, ControlFlowGraph cfg) {
+        super(new BitSetPowersetLattice<>(index), index, cfg, DataFlowDirection.FORWARD);
 
-        } else if (block.statements.size() == 1) {
-            return transfer(block.id, block.statements.element(), input);
+        this.variableDefinitions = new HashMap<>();
+        for (int i = 0; i < index.size(); i++) {
+            var def = index.get(i);
+            this.variableDefinitions.computeIfAbsent(def.var, var -> new IndexedSet<>(index)).add(def);
+        }
 
-        } else {
-            throw new RuntimeException("CFG used in dataflow analysis must be atomic");
+        this.statementDefinitions = new IdentityHashMap<>();
+        for (var block : cfg.blockMap.values()) {
+            int i = 0;
+            for (var stmt : block.statements) {
+                if (stmt instanceof Assign assign) {
+                    var def = index.get(index.indexOf(new Definition(block.id, i, assign.var, assign.rhs)));
+                    this.statementDefinitions.put(stmt, def);
+                }
+                i += 1;
+            }
         }
     }
 
-    private Set<Definition> transfer(int blockId, AtomicStatement statement, Set<Definition> input) {
-        if (statement instanceof Assign assign) {
-            var res = new HashSet<Definition>();
+    private static ElementIndex<Definition> programDefinitions(ControlFlowGraph cfg) {
+        var index = new ElementIndex<Definition>();
+        for (var block : cfg.blockList()) {
+            int i = 0;
+            for (var stmt : block.statements) {
+                if (stmt instanceof Assign assign) {
+                    index.add(new Definition(block.id, i, assign.var, assign.rhs));
+                }
+                i += 1;
+            }
+        }
+
+        return index;
+    }
 
-            for (var def : input) {
-                if (!def.var.equals(assign.var)) {
-                    res.add(def);
+    /** definitions are identified by their statements, so a new assignment changes the universe. */
+    @Override
+    boolean refresh(Set<Integer> changedBlocks) {
+        for (int blockId : changedBlocks) {
+            for (AtomicStatement statement : this.cfg.blockMap.get(blockId).statements) {
+                if (statement instanceof Assign && !this.statementDefinitions.containsKey(statement)) {
+                    return false;
                 }
             }
+        }
 
-            res.add(new Definition(blockId, assign.var, assign.rhs));
-            return res;
+        return super.refresh(changedBlocks);
+    }
 
-        } else if (statement instanceof Output) {
-            return input;
+    @Override
+    Set<Definition> gen(BasicBlock block, AtomicStatement statement) {
+        if (statement instanceof Assign assign) {
+            return Set.of(this.statementDefinitions.get(assign));
 
         } else {
-            throw new RuntimeException("unreachable");
+            return Set.of();
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    Set<Definition> kill(BasicBlock block, AtomicStatement statement) {
+        if (statement instanceof Assign assign) {
+            return this.variableDefinitions.get(assign.var);
+
+        } else {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package org.example;
+
+import java.util.*;
+import java.util.function.Function;
+
+/** phi node {@code name := phi(operands)} at the start of a join block; each operand is the name of the
+ *  variable at the end of the corresponding predecessor block. */
+class Phi {
+    String var;
+    String name;
+    TreeMap<Integer, String> operands;
+
+    Phi(String var, String name) {
+        this.var = var;
+        this.name = name;
+        this.operands = new TreeMap<>();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s := phi(%s)", this.name, this.operands);
+    }
+}
+
+/** Replace the names of variables in an expression. */
+class RenameVariables implements ValueExpressionVisitor<Expression> {
+    Function<String, String> rename;
+
+    RenameVariables(Function<String, String> rename) {
+        this.rename = rename;
+    }
+
+    @Override
+    public Expression visitInput() {
+        return new Input();
+    }
+
+    @Override
+    public Expression visitLiteral(int value) {
+        return new Literal(value);
+    }
+
+    @Override
+    public Expression visitVar(String name) {
+        return new Var(this.rename.apply(name));
+    }
+
+    @Override
+    public Expression visitAdd(Expression lhs, Expression rhs) {
+        return new Add(lhs, rhs);
+    }
+
+    @Override
+    public Expression visitMultiply(Expression lhs, Expression rhs) {
+        return new Multiply(lhs, rhs);
+    }
+}
+
+/** Static single assignment form of a CFG.
+ *  The renamed CFG has the same block IDs as the original; version {@code x.0} of variable {@code x}
+ *  stands for its (undefined) value on entry. Blocks unreachable from the entry block are dropped. */
+class SSAForm {
+    ControlFlowGraph cfg;
+    HashMap<Integer, List<Phi>> phis;
+
+    // immediate dominator of each block, indexed by block ID; -1 for the entry block and unreachable blocks
+    int[] idom;
+
+    // maps every SSA name to the variable it is a version of
+    HashMap<String, String> variables;
+
+    // for each block, the SSA names of the variables it (re)defines, as of the end of the block
+    HashMap<Integer, HashMap<String, String>> lastDefinitions;
+
+    SSAForm(ControlFlowGraph cfg, int[] idom) {
+        this.cfg = cfg;
+        this.idom = idom;
+        this.phis = new HashMap<>();
+        this.variables = new HashMap<>();
+        this.lastDefinitions = new HashMap<>();
+    }
+
+    static String initialName(String var) {
+        return var + ".0";
+    }
+
+    /** return the SSA name that holds the value of {@param var} at the end of block {@param blockId}. */
+    String nameAt(String var, int blockId) {
+        for (int cur = blockId; cur >= 0; cur = this.idom[cur]) {
+            var defs = this.lastDefinitions.get(cur);
+            if (defs != null && defs.containsKey(var)) {
+                return defs.get(var);
+            }
+        }
+
+        return initialName(var);
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (BasicBlock block : this.cfg.blockList()) {
+            builder.append(block.id);
+            builder.append('\n');
+            for (Phi phi : this.phis.getOrDefault(block.id, List.of())) {
+                builder.append(phi);
+                builder.append(";\n");
+            }
+            builder.append(block);
+            builder.append("\n\n");
+        }
+
+        return builder.toString();
+    }
+}
+
+/** Builds minimal SSA form: dominators and dominance frontiers are computed with the Cooper-Harvey-Kennedy
+ *  algorithm, phis are placed at the iterated dominance frontiers of each variable's definitions, and
+ *  variables are renamed in a preorder traversal of the dominator tree. */
+class SSABuilder {
+    private ControlFlowGraph cfg;
+    private SSAForm ssa;
+
+    // reachable blocks in reverse postorder, and the position of each block in it (-1 if unreachable)
+    private List<Integer> order;
+    private int[] position;
+
+    private HashMap<Integer, Set<Integer>> predecessors;
+
+    // renaming state: the stack of SSA names of each variable, and the next version number of each variable
+    private HashMap<String, ArrayDeque<String>> names;
+    private HashMap<String, Integer> versions;
+
+    SSAForm buildSSA(ControlFlowGraph cfg) {
+        this.cfg = cfg;
+        this.predecessors = cfg.predecessors();
+
+        this.position = new int[cfg.curBlockId];
+        Arrays.fill(this.position, -1);
+        this.order = new ArrayList<>();
+        var reachable = reachableBlocks();
+        for (int blockId : cfg.reversePostorder()) {
+            if (reachable.contains(blockId)) {
+                this.position[blockId] = this.order.size();
+                this.order.add(blockId);
+            }
+        }
+
+        var renamed = new ControlFlowGraph();
+        renamed.curBlockId = cfg.curBlockId;
+        renamed.entryBlock = cfg.entryBlock;
+        renamed.exitBlock = cfg.exitBlock;
+        this.ssa = new SSAForm(renamed, dominators());
+
+        placePhis(dominanceFrontiers());
+        rename();
+        return this.ssa;
+    }
+
+    private Set<Integer> reachableBlocks() {
+        var reachable = new HashSet<Integer>();
+        var stack = new ArrayDeque<Integer>();
+        reachable.add(this.cfg.entryBlock);
+        stack.push(this.cfg.entryBlock);
+        while (!stack.isEmpty()) {
+            for (int target : this.cfg.blockMap.get(stack.pop()).jump.possibleTargets()) {
+                if (reachable.add(target)) {
+                    stack.push(target);
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    private int[] dominators() {
+        int entry = this.cfg.entryBlock;
+        int[] idom = new int[this.cfg.curBlockId];
+        Arrays.fill(idom, -1);
+        idom[entry] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int blockId : this.order) {
+                if (blockId == entry) {
+                    continue;
+                }
+
+                int newIdom = -1;
+                for (int pred : this.predecessors.get(blockId)) {
+                    if (idom[pred] < 0) {
+                        continue;
+                    }
+                    newIdom = newIdom < 0 ? pred : intersect(idom, pred, newIdom);
+                }
+
+                if (idom[blockId] != newIdom) {
+                    idom[blockId] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        // the entry block has no immediate dominator
+        idom[entry] = -1;
+        return idom;
+    }
+
+    private int intersect(int[] idom, int a, int b) {
+        while (a != b) {
+            while (this.position[a] > this.position[b]) {
+                a = idom[a];
+            }
+            while (this.position[b] > this.position[a]) {
+                b = idom[b];
+            }
+        }
+
+        return a;
+    }
+
+    private HashMap<Integer, Set<Integer>> dominanceFrontiers() {
+        var frontiers = new HashMap<Integer, Set<Integer>>();
+        for (int blockId : this.order) {
+            frontiers.put(blockId, new HashSet<>());
+        }
+
+        for (int blockId : this.order) {
+            var preds = this.predecessors.get(blockId).stream().filter(pred -> this.position[pred] >= 0).toList();
+            if (preds.size() < 2) {
+                continue;
+            }
+
+            for (int pred : preds) {
+                for (int runner = pred; runner != this.ssa.idom[blockId]; runner = this.ssa.idom[runner]) {
+                    frontiers.get(runner).add(blockId);
+                }
+            }
+        }
+
+        return frontiers;
+    }
+
+    private void placePhis(HashMap<Integer, Set<Integer>> frontiers) {
+        // blocks that assign each variable
+        var definitionBlocks = new TreeMap<String, Set<Integer>>();
+        for (int blockId : this.order) {
+            for (AtomicStatement statement : this.cfg.blockMap.get(blockId).statements) {
+                if (statement instanceof Assign assign) {
+                    definitionBlocks.computeIfAbsent(assign.var, var -> new HashSet<>()).add(blockId);
+                }
+            }
+        }
+
+        for (var kv : definitionBlocks.entrySet()) {
+            var var = kv.getKey();
+            var hasPhi = new HashSet<Integer>();
+            var worklist = new ArrayDeque<>(kv.getValue());
+            var queued = new HashSet<>(kv.getValue());
+
+            while (!worklist.isEmpty()) {
+                int blockId = worklist.pop();
+                for (int frontier : frontiers.get(blockId)) {
+                    if (hasPhi.add(frontier)) {
+                        this.ssa.phis.computeIfAbsent(frontier, id -> new ArrayList<>()).add(new Phi(var, null));
+                        if (queued.add(frontier)) {
+                            worklist.push(frontier);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private String currentName(String var) {
+        var stack = this.names.get(var);
+        if (stack == null || stack.isEmpty()) {
+            String name = SSAForm.initialName(var);
+            this.ssa.variables.put(name, var);
+            return name;
+        }
+
+        return stack.peek();
+    }
+
+    private String freshName(String var, List<String> defined) {
+        int version = this.versions.merge(var, 1, Integer::sum);
+        String name = String.format("%s.%d", var, version);
+        this.ssa.variables.put(name, var);
+        this.names.computeIfAbsent(var, v -> new ArrayDeque<>()).push(name);
+        defined.add(var);
+        return name;
+    }
+
+    private void rename() {
+        this.names = new HashMap<>();
+        this.versions = new HashMap<>();
+
+        var children = new HashMap<Integer, List<Integer>>();
+        for (int blockId : this.order) {
+            int parent = this.ssa.idom[blockId];
+            if (parent >= 0) {
+                children.computeIfAbsent(parent, id -> new ArrayList<>()).add(blockId);
+            }
+        }
+
+        // iterative preorder traversal of the dominator tree; a block's definitions are popped once it is
+        // visited again after all of its children
+        var stack = new ArrayDeque<Integer>();
+        var definedBy = new HashMap<Integer, List<String>>();
+        stack.push(this.cfg.entryBlock);
+        while (!stack.isEmpty()) {
+            int blockId = stack.pop();
+            if (definedBy.containsKey(blockId)) {
+                for (String var : definedBy.remove(blockId)) {
+                    this.names.get(var).pop();
+                }
+                continue;
+            }
+
+            var defined = new ArrayList<String>();
+            renameBlock(this.cfg.blockMap.get(blockId), defined);
+            definedBy.put(blockId, defined);
+
+            stack.push(blockId);
+            for (int child : children.getOrDefault(blockId, List.of())) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private void renameBlock(BasicBlock block, List<String> defined) {
+        var lastDefinitions = new HashMap<String, String>();
+        var renameUses = new RenameVariables(this::currentName);
+
+        for (Phi phi : this.ssa.phis.getOrDefault(block.id, List.of())) {
+            phi.name = freshName(phi.var, defined);
+            lastDefinitions.put(phi.var, phi.name);
+        }
+
+        var statements = new LinkedList<AtomicStatement>();
+        for (AtomicStatement statement : block.statements) {
+            if (statement instanceof Assign assign) {
+                var rhs = this.ssa.cfg.expressions.intern(assign.rhs.accept(renameUses));
+                String name = freshName(assign.var, defined);
+                lastDefinitions.put(assign.var, name);
+                statements.add(new Assign(name, rhs));
+
+            } else if (statement instanceof Output output) {
+                statements.add(new Output(this.ssa.cfg.expressions.intern(output.expr.accept(renameUses))));
+
+            } else {
+                throw new RuntimeException("unknown statement variant");
+            }
+        }
+
+        Jump jump;
+        if (block.jump instanceof ConditionalJump conditional) {
+            var guard = this.ssa.cfg.expressions.intern(conditional.guard.accept(renameUses));
+            jump = new ConditionalJump(guard, conditional.trueTarget, conditional.falseTarget);
+
+        } else if (block.jump instanceof UnconditionalJump unconditional) {
+            jump = new UnconditionalJump(unconditional.target);
+
+        } else {
+            jump = new Halt();
+        }
+
+        this.ssa.cfg.blockMap.put(block.id, new BasicBlock(block.id, statements, jump));
+        if (!lastDefinitions.isEmpty()) {
+            this.ssa.lastDefinitions.put(block.id, lastDefinitions);
+        }
+
+        // fill in the operands of phis in successors for the edge from this block
+        for (int target : block.jump.possibleTargets()) {
+            for (Phi phi : this.ssa.phis.getOrDefault(target, List.of())) {
+                phi.operands.put(block.id, currentName(phi.var));
+            }
+        }
+    }
+}
@@ -14,4 +14,14 @@ public class SecurityLattice implements CompleteUpperSemiLattice<SecurityLevel>
         }
         return cur;
     }
+
+    @Override
+    public SecurityLevel join(SecurityLevel element1, SecurityLevel element2) {
+        return element1 == SecurityLevel.SECRET ? SecurityLevel.SECRET : element2;
+    }
+
+    @Override
+    public SecurityLevel bottom() {
+        return SecurityLevel.PUBLIC;
+    }
 }
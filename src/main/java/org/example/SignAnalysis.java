@@ -1,14 +1,14 @@
 package org.example;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BinaryOperator;
 
 /** computes the sign of variables at specific program points. */
-public class SignAnalysis extends BasicDataFlowAnalysis<Map<String, Sign>, StoreLattice<Sign, SignLattice>> {
+public class SignAnalysis extends BasicDataFlowAnalysis<Map<String, Sign>, EnumStoreLattice<Sign, SignLattice>> {
     SignAnalysis(ControlFlowGraph cfg) {
-        super(new StoreLattice<>(new SignLattice(), cfgVariables(cfg)), cfg, DataFlowDirection.FORWARD);
+        super(new EnumStoreLattice<>(new SignLattice(), Sign.class, cfgVariables(cfg)), cfg, DataFlowDirection.FORWARD);
     }
 
     private static Set<String> cfgVariables(ControlFlowGraph cfg) {
@@ -28,12 +28,20 @@ public class SignAnalysis extends BasicDataFlowAnalysis<Map<String, Sign>, Store
         return expr.accept(new EvalVisitor(store));
     }
 
+    /** stores have a fixed set of variables, so edits must not introduce new ones. */
+    @Override
+    boolean refresh(Set<Integer> changedBlocks) {
+        return this.lattice.hasVariables(statementVariables(changedBlocks));
+    }
+
     @Override
     Map<String, Sign> transfer(AtomicStatement statement, Map<String, Sign> input) {
         if (statement instanceof Assign assign) {
-            var output = new HashMap<>(input);
-            output.put(assign.var, eval(input, assign.rhs));
-            return output;
+            return this.lattice.update(input, assign.var, eval(input, assign.rhs));
+
+        } else if (statement instanceof Output) {
+            // output does not change the store
+            return input;
 
         } else {
             throw new RuntimeException("unknown statement variant");
@@ -46,13 +54,28 @@ public class SignAnalysis extends BasicDataFlowAnalysis<Map<String, Sign>, Store
         return input;
     }
 
-    private static class EvalVisitor implements ValueExpressionVisitor<Sign> {
+    static class EvalVisitor implements ValueExpressionVisitor<Sign> {
+        // ADD[lhs.ordinal()][rhs.ordinal()] is the sign of lhs + rhs, and likewise for MULTIPLY
+        private static final Sign[][] ADD = tabulate(EvalVisitor::add);
+        private static final Sign[][] MULTIPLY = tabulate(EvalVisitor::multiply);
+
         Map<String, Sign> store;
 
         EvalVisitor(Map<String, Sign> store) {
             this.store = store;
         }
 
+        private static Sign[][] tabulate(BinaryOperator<Sign> rule) {
+            var signs = Sign.values();
+            var table = new Sign[signs.length][signs.length];
+            for (Sign lhs : signs) {
+                for (Sign rhs : signs) {
+                    table[lhs.ordinal()][rhs.ordinal()] = rule.apply(lhs, rhs);
+                }
+            }
+            return table;
+        }
+
         @Override
         public Sign visitInput() {
             return Sign.UNKNOWN;
@@ -79,6 +102,15 @@ public class SignAnalysis extends BasicDataFlowAnalysis<Map<String, Sign>, Store
 
         @Override
         public Sign visitAdd(Sign lhs, Sign rhs) {
+            return ADD[lhs.ordinal()][rhs.ordinal()];
+        }
+
+        @Override
+        public Sign visitMultiply(Sign lhs, Sign rhs) {
+            return MULTIPLY[lhs.ordinal()][rhs.ordinal()];
+        }
+
+        private static Sign add(Sign lhs, Sign rhs) {
             if (lhs == Sign.NO_SIGN) {
                 return rhs;
 
@@ -99,8 +131,7 @@ public class SignAnalysis extends BasicDataFlowAnalysis<Map<String, Sign>, Store
             }
         }
 
-        @Override
-        public Sign visitMultiply(Sign lhs, Sign rhs) {
+        private static Sign multiply(Sign lhs, Sign rhs) {
             if (lhs == Sign.NO_SIGN) {
                 return rhs;
 
@@ -24,6 +24,11 @@ public class SignLattice implements CompleteUpperSemiLattice<Sign> {
         }
     }
 
+    @Override
+    public Sign bottom() {
+        return Sign.NO_SIGN;
+    }
+
     @Override
     public Sign join(Set<Sign> elements) {
         if (elements.size() == 0) {
@@ -33,7 +38,11 @@ public class SignLattice implements CompleteUpperSemiLattice<Sign> {
             return elements.iterator().next();
 
         } else {
-            return elements.stream().reduce(Sign.NO_SIGN, this::join);
+            var cur = Sign.NO_SIGN;
+            for (Sign element : elements) {
+                cur = join(cur, element);
+            }
+            return cur;
         }
     }
 }
@@ -0,0 +1,407 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/** Binary encoding of the elements of a lattice. Elements of set and store lattices are encoded relative to the
+ *  universe of the lattice they came from; the fingerprint identifies that universe, so that a solution is not
+ *  decoded against a different one. */
+interface ElementCodec<T> {
+    void write(T element, DataOutputStream out) throws IOException;
+
+    T read(ByteBuffer in);
+
+    default int fingerprint() {
+        return 0;
+    }
+
+    /** whether elements are encoded relative to the element written before them, see {@link #write(Object, Object,
+     *  DataOutputStream)}. Worth it for elements that usually differ little from one block to the next. */
+    default boolean relative() {
+        return false;
+    }
+
+    /** write {@param element} relative to {@param previous}, an element written before it, or in full if it is
+     *  null. By default, ignores {@param previous}. */
+    default void write(T element, T previous, DataOutputStream out) throws IOException {
+        write(element, out);
+    }
+
+    /** read an element written relative to {@param previous}. */
+    default T read(ByteBuffer in, T previous) {
+        return read(in);
+    }
+
+    /** return the codec for the elements of {@param lattice}, one of the lattices of the standard analyses. */
+    @SuppressWarnings("unchecked")
+    static <T> ElementCodec<T> forLattice(CompleteUpperSemiLattice<T> lattice) {
+        Object res;
+        if (lattice instanceof BitSetPowersetLattice<?> powerset) {
+            res = indexedSet(powerset.index);
+
+        } else if (lattice instanceof ReverseBitSetPowersetLattice<?> powerset) {
+            res = indexedSet(powerset.index);
+
+        } else if (lattice instanceof EnumStoreLattice<?, ?> store) {
+            res = enumStore(store);
+
+        } else if (lattice instanceof StoreLattice<?, ?> store) {
+            res = store((StoreLattice<Object, ?>) store, forLattice((CompleteUpperSemiLattice<Object>) store.lattice));
+
+        } else if (lattice instanceof IntervalLattice) {
+            res = interval();
+
+        } else if (lattice instanceof SignLattice) {
+            res = enumConstant(Sign.class);
+
+        } else if (lattice instanceof SecurityLattice) {
+            res = enumConstant(SecurityLevel.class);
+
+        } else {
+            throw new RuntimeException(String.format("no binary encoding for %s", lattice.getClass().getSimpleName()));
+        }
+        return (ElementCodec<T>) res;
+    }
+
+    /** sets over {@param index}, as the words of their bit vectors. */
+    static <E> ElementCodec<IndexedSet<E>> indexedSet(ElementIndex<E> index) {
+        return new ElementCodec<>() {
+            @Override
+            public void write(IndexedSet<E> element, DataOutputStream out) throws IOException {
+                assert(element.index == index);
+                long[] words = element.bitSet().toLongArray();
+                Binary.writeVarint(out, words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+
+            @Override
+            public IndexedSet<E> read(ByteBuffer in) {
+                long[] words = new long[Binary.readVarint(in)];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.getLong();
+                }
+                return new IndexedSet<>(index, BitSet.valueOf(words));
+            }
+
+            // computed on first use, since it prints every element of the universe
+            Integer fingerprint;
+
+            @Override
+            public int fingerprint() {
+                if (this.fingerprint == null) {
+                    int res = index.size();
+                    for (int i = 0; i < index.size(); i++) {
+                        res = 31 * res + String.valueOf(index.get(i)).hashCode();
+                    }
+                    this.fingerprint = res;
+                }
+                return this.fingerprint;
+            }
+        };
+    }
+
+    /** stores of {@param lattice}, as one ordinal per variable. */
+    static <E extends Enum<E>> ElementCodec<Map<String, E>> enumStore(EnumStoreLattice<E, ?> lattice) {
+        return new ElementCodec<>() {
+            @Override
+            public void write(Map<String, E> element, DataOutputStream out) throws IOException {
+                if (element instanceof EnumStore<E> store && store.variables == lattice.variables) {
+                    out.write(store.values);
+                    return;
+                }
+
+                for (int i = 0; i < lattice.variables.size(); i++) {
+                    out.writeByte(element.get(lattice.variables.get(i)).ordinal());
+                }
+            }
+
+            @Override
+            public Map<String, E> read(ByteBuffer in) {
+                var values = new byte[lattice.variables.size()];
+                in.get(values);
+                return new EnumStore<>(lattice.variables, lattice.constants, values);
+            }
+
+            @Override
+            public int fingerprint() {
+                int res = names(lattice.constants);
+                for (int i = 0; i < lattice.variables.size(); i++) {
+                    res = 31 * res + lattice.variables.get(i).hashCode();
+                }
+                return res;
+            }
+        };
+    }
+
+    /** persistent stores of {@param lattice} mapping variables to values encoded by {@param values}, as the values
+     *  that differ from the previous store, with variables numbered in sorted order. Stores read relative to a
+     *  previous one share its structure. */
+    static <T> ElementCodec<Map<String, T>> store(StoreLattice<T, ?> lattice, ElementCodec<T> values) {
+        var variables = lattice.variables.stream().sorted().toArray(String[]::new);
+        return new ElementCodec<>() {
+            @Override
+            public void write(Map<String, T> element, DataOutputStream out) throws IOException {
+                write(element, null, out);
+            }
+
+            @Override
+            public void write(Map<String, T> element, Map<String, T> previous, DataOutputStream out) throws IOException {
+                int changed = 0;
+                var changes = new int[variables.length];
+                for (int i = 0; i < variables.length && element != previous; i++) {
+                    if (previous == null || !element.get(variables[i]).equals(previous.get(variables[i]))) {
+                        changes[changed++] = i;
+                    }
+                }
+
+                Binary.writeVarint(out, changed);
+                for (int i = 0; i < changed; i++) {
+                    Binary.writeVarint(out, changes[i]);
+                    values.write(element.get(variables[changes[i]]), out);
+                }
+            }
+
+            @Override
+            public Map<String, T> read(ByteBuffer in) {
+                return read(in, null);
+            }
+
+            @Override
+            public Map<String, T> read(ByteBuffer in, Map<String, T> previous) {
+                var res = previous == null ? PersistentMap.<String, T>empty() : lattice.persistent(previous);
+                int changed = Binary.readVarint(in);
+                for (int i = 0; i < changed; i++) {
+                    var var = variables[Binary.readVarint(in)];
+                    res = res.plus(var, values.read(in));
+                }
+                return res;
+            }
+
+            @Override
+            public boolean relative() {
+                return true;
+            }
+
+            @Override
+            public int fingerprint() {
+                return 31 * Arrays.hashCode(variables) + values.fingerprint();
+            }
+        };
+    }
+
+    static <E extends Enum<E>> ElementCodec<E> enumConstant(Class<E> type) {
+        var constants = type.getEnumConstants();
+        return new ElementCodec<>() {
+            @Override
+            public void write(E element, DataOutputStream out) throws IOException {
+                out.writeByte(element.ordinal());
+            }
+
+            @Override
+            public E read(ByteBuffer in) {
+                return constants[in.get()];
+            }
+
+            @Override
+            public int fingerprint() {
+                return names(constants);
+            }
+        };
+    }
+
+    /** hash of the names of {@param constants}, which unlike their hash codes is the same in every run. */
+    private static int names(Enum<?>[] constants) {
+        int res = constants.length;
+        for (var constant : constants) {
+            res = 31 * res + constant.name().hashCode();
+        }
+        return res;
+    }
+
+    static ElementCodec<Interval> interval() {
+        return new ElementCodec<>() {
+            @Override
+            public void write(Interval element, DataOutputStream out) throws IOException {
+                out.writeLong(element.isEmpty() ? 1 : element.lo);
+                out.writeLong(element.isEmpty() ? 0 : element.hi);
+            }
+
+            @Override
+            public Interval read(ByteBuffer in) {
+                long lo = in.getLong();
+                return Interval.of(lo, in.getLong());
+            }
+        };
+    }
+}
+
+/** Binary encoding of analysis solutions: a record per block, located through a table of offsets indexed by
+ *  block ID that, with the codec's fingerprint, is given by a trailer at the end of the file.
+ *  With a {@link ElementCodec#relative()} codec, a record starts with the ID (plus one) of the block it is relative
+ *  to, the previous one in ID order, or 0 for a record in full; one record in {@link #FULL_INTERVAL} is in full, which
+ *  bounds the records decoded to get the element of one block. */
+class SolutionCodec {
+    static final int MAGIC = 0x4446534c;
+    static final int VERSION = 2;
+    static final int TRAILER_BYTES = 4 * 4;
+    static final int FULL_INTERVAL = 32;
+
+    /** write {@param solution} of {@param analysis}, one of the standard analyses, to {@param file}. */
+    static <T> void write(DataFlowAnalysis<T, ?> analysis, HashMap<Integer, T> solution, Path file) throws IOException {
+        write(solution, ElementCodec.forLattice(analysis.lattice), file);
+    }
+
+    static <T> void write(HashMap<Integer, T> solution, ElementCodec<T> codec, Path file) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            write(solution, codec, out);
+        }
+    }
+
+    /** return the encoding of {@param solution}, as it would be written to a file. */
+    static <T> byte[] encode(HashMap<Integer, T> solution, ElementCodec<T> codec) {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            write(solution, codec, out);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static <T> void write(HashMap<Integer, T> solution, ElementCodec<T> codec, DataOutputStream out) throws IOException {
+        int numBlockIds = solution.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        int[] offsets = new int[numBlockIds];
+        Arrays.fill(offsets, -1);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        int previous = -1;
+        int records = 0;
+        for (int blockId : new TreeSet<>(solution.keySet())) {
+            offsets[blockId] = Binary.position(out);
+            if (!codec.relative()) {
+                codec.write(solution.get(blockId), out);
+
+            } else if (records % FULL_INTERVAL == 0) {
+                Binary.writeVarint(out, 0);
+                codec.write(solution.get(blockId), null, out);
+
+            } else {
+                Binary.writeVarint(out, previous + 1);
+                codec.write(solution.get(blockId), solution.get(previous), out);
+            }
+            previous = blockId;
+            records += 1;
+        }
+
+        int offsetsOffset = Binary.position(out);
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+
+        out.writeInt(numBlockIds);
+        out.writeInt(offsetsOffset);
+        out.writeInt(codec.fingerprint());
+        out.writeInt(MAGIC);
+    }
+
+    /** map {@param file}, which must hold a solution encoded with a codec of the same universe as {@param codec}. */
+    static <T> MappedSolution<T> open(Path file, ElementCodec<T> codec) throws IOException {
+        return new MappedSolution<>(Binary.map(file), codec);
+    }
+
+    static <T> MappedSolution<T> open(DataFlowAnalysis<T, ?> analysis, Path file) throws IOException {
+        return open(file, ElementCodec.forLattice(analysis.lattice));
+    }
+}
+
+/** Read-only view of an encoded solution; the element of a block is decoded each time it is asked for. */
+class MappedSolution<T> {
+    private final ByteBuffer buffer;
+    private final ElementCodec<T> codec;
+    private final int numBlockIds;
+    private final int offsetsOffset;
+
+    MappedSolution(ByteBuffer buffer, ElementCodec<T> codec) {
+        this.buffer = buffer;
+        this.codec = codec;
+
+        int trailer = buffer.limit() - SolutionCodec.TRAILER_BYTES;
+        if (trailer < 8 || buffer.getInt(0) != SolutionCodec.MAGIC || buffer.getInt(buffer.limit() - 4) != SolutionCodec.MAGIC) {
+            throw new RuntimeException("not an encoded solution");
+        }
+        if (buffer.getInt(4) != SolutionCodec.VERSION) {
+            throw new RuntimeException(String.format("unsupported solution encoding version %d", buffer.getInt(4)));
+        }
+        if (buffer.getInt(trailer + 8) != codec.fingerprint()) {
+            throw new RuntimeException("solution was encoded over a different universe");
+        }
+
+        this.numBlockIds = buffer.getInt(trailer);
+        this.offsetsOffset = buffer.getInt(trailer + 4);
+    }
+
+    private int offset(int blockId) {
+        return blockId >= 0 && blockId < this.numBlockIds ? this.buffer.getInt(this.offsetsOffset + 4 * blockId) : -1;
+    }
+
+    boolean hasBlock(int blockId) {
+        return offset(blockId) >= 0;
+    }
+
+    /** decode the element of block {@param blockId}, or return null if the solution has none. */
+    T get(int blockId) {
+        int offset = offset(blockId);
+        if (offset < 0) {
+            return null;
+
+        } else if (!this.codec.relative()) {
+            return this.codec.read(this.buffer.duplicate().position(offset));
+        }
+
+        // find the chain of records back to one in full, then decode it forwards
+        var chain = new ArrayList<ByteBuffer>();
+        for (int cur = blockId; cur >= 0; ) {
+            var in = this.buffer.duplicate().position(offset(cur));
+            chain.add(in);
+            cur = Binary.readVarint(in) - 1;
+        }
+
+        T res = null;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            res = this.codec.read(chain.get(i), res);
+        }
+        return res;
+    }
+
+    /** decode the whole solution. Records are decoded in order, so each is read relative to an element that has
+     *  already been decoded. */
+    HashMap<Integer, T> toMap() {
+        var res = new HashMap<Integer, T>();
+        for (int blockId = 0; blockId < this.numBlockIds; blockId++) {
+            int offset = offset(blockId);
+            if (offset < 0) {
+                continue;
+
+            } else if (!this.codec.relative()) {
+                res.put(blockId, this.codec.read(this.buffer.duplicate().position(offset)));
+                continue;
+            }
+
+            var in = this.buffer.duplicate().position(offset);
+            int previous = Binary.readVarint(in) - 1;
+            res.put(blockId, this.codec.read(in, previous < 0 ? null : res.get(previous)));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.HashMap;
+
+/** Statistics of one solve, recorded by a {@link FixpointSolver} whose {@code collectStats} is set.
+ *  Times are cumulative over all variable evaluations: joining the inputs of a variable (including widening and
+ *  narrowing), applying its transfer function, and comparing the result with its previous value. */
+class SolverStats {
+    // number of evaluations of each variable, indexed by variable
+    final int[] visits;
+
+    // evaluations that changed the value of their variable
+    long changes;
+
+    long joinNanos;
+    long transferNanos;
+    long equalsNanos;
+
+    // largest number of variables pending at once (0 for the weak topological solver, which has no worklist)
+    int peakWorklist;
+
+    SolverStats(int numVariables) {
+        this(new int[numVariables]);
+    }
+
+    /** statistics that count visits in {@param visits}, used by tasks of the parallel solver. */
+    SolverStats(int[] visits) {
+        this.visits = visits;
+    }
+
+    /** total number of variable evaluations. */
+    long iterations() {
+        long res = 0;
+        for (int count : this.visits) {
+            res += count;
+        }
+        return res;
+    }
+
+    void record(int var, long joinNanos, long transferNanos, long equalsNanos, boolean changed) {
+        this.visits[var] += 1;
+        this.joinNanos += joinNanos;
+        this.transferNanos += transferNanos;
+        this.equalsNanos += equalsNanos;
+        if (changed) {
+            this.changes += 1;
+        }
+    }
+
+    void observeWorklist(int size) {
+        this.peakWorklist = Math.max(this.peakWorklist, size);
+    }
+
+    /** add the counters of {@param other}, which shares this object's visits, to this object. */
+    synchronized void add(SolverStats other) {
+        this.changes += other.changes;
+        this.joinNanos += other.joinNanos;
+        this.transferNanos += other.transferNanos;
+        this.equalsNanos += other.equalsNanos;
+        this.peakWorklist = Math.max(this.peakWorklist, other.peakWorklist);
+    }
+
+    /** return the number of evaluations of each block, given the block of each variable. */
+    HashMap<Integer, Integer> blockVisits(int[] varBlocks) {
+        var res = new HashMap<Integer, Integer>();
+        for (int var = 0; var < this.visits.length; var++) {
+            res.put(varBlocks[var], this.visits[var]);
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%d iterations over %d variables (%d changes), peak worklist %d; join %.3f ms, transfer %.3f ms, equals %.3f ms",
+            iterations(),
+            this.visits.length,
+            this.changes,
+            this.peakWorklist,
+            this.joinNanos / 1e6,
+            this.transferNanos / 1e6,
+            this.equalsNanos / 1e6
+        );
+    }
+}
@@ -0,0 +1,104 @@
+package org.example;
+
+import java.util.*;
+
+/** Sign analysis over SSA form that propagates signs along def-use edges instead of carrying whole stores
+ *  through every block. Each SSA name has one sign; a definition is re-evaluated only when the sign of one of
+ *  the names it uses changes, so the work is proportional to the number of definitions and uses.
+ *  On reachable blocks, the results agree with {@link SignAnalysis}. */
+class SparseSignAnalysis {
+    SSAForm ssa;
+    SignLattice lattice;
+
+    // number of definitions evaluated by the last call to analyze
+    int evaluations;
+
+    SparseSignAnalysis(SSAForm ssa) {
+        this.ssa = ssa;
+        this.lattice = new SignLattice();
+    }
+
+    /** return the sign of every SSA name. */
+    HashMap<String, Sign> analyze() {
+        // definitions are assignments and phis, numbered densely
+        var definitions = new ArrayList<Object>();
+        for (var phis : this.ssa.phis.values()) {
+            definitions.addAll(phis);
+        }
+        for (BasicBlock block : this.ssa.cfg.blockMap.values()) {
+            for (AtomicStatement statement : block.statements) {
+                if (statement instanceof Assign assign) {
+                    definitions.add(assign);
+                }
+            }
+        }
+
+        // def-use edges: the definitions that use each SSA name
+        var users = new HashMap<String, List<Integer>>();
+        var variablesVisitor = new ExpressionVariables();
+        for (int i = 0; i < definitions.size(); i++) {
+            var uses = definitions.get(i) instanceof Phi phi
+                ? new HashSet<>(phi.operands.values())
+                : ((Assign) definitions.get(i)).rhs.accept(variablesVisitor);
+            for (String name : uses) {
+                users.computeIfAbsent(name, n -> new ArrayList<>()).add(i);
+            }
+        }
+
+        var values = new HashMap<String, Sign>();
+        for (String name : this.ssa.variables.keySet()) {
+            values.put(name, this.lattice.bottom());
+        }
+
+        var worklist = new IntQueue(definitions.size());
+        var queued = new boolean[definitions.size()];
+        for (int i = 0; i < definitions.size(); i++) {
+            worklist.addLast(i);
+            queued[i] = true;
+        }
+
+        this.evaluations = 0;
+        var evalVisitor = new SignAnalysis.EvalVisitor(values);
+        while (!worklist.isEmpty()) {
+            int i = worklist.removeFirst();
+            queued[i] = false;
+            this.evaluations += 1;
+
+            String name;
+            Sign value;
+            if (definitions.get(i) instanceof Phi phi) {
+                name = phi.name;
+                value = this.lattice.bottom();
+                for (String operand : phi.operands.values()) {
+                    value = this.lattice.join(value, values.get(operand));
+                }
+
+            } else {
+                var assign = (Assign) definitions.get(i);
+                name = assign.var;
+                value = assign.rhs.accept(evalVisitor);
+            }
+
+            if (values.put(name, value) != value) {
+                for (int user : users.getOrDefault(name, List.of())) {
+                    if (!queued[user]) {
+                        queued[user] = true;
+                        worklist.addLast(user);
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /** return the store at the end of block {@param blockId} over the original variables {@param variables},
+     *  given the signs {@param values} of SSA names. */
+    Map<String, Sign> storeAt(HashMap<String, Sign> values, int blockId, Set<String> variables) {
+        var store = new HashMap<String, Sign>();
+        for (String var : variables) {
+            store.put(var, values.getOrDefault(this.ssa.nameAt(var, blockId), this.lattice.bottom()));
+        }
+        return store;
+    }
+}
@@ -1,14 +1,18 @@
 package org.example;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-/** lattice where elements are maps from variables to elements of another lattice. */
+/** lattice where elements are maps from variables to elements of another lattice.
+ *  Stores are {@link PersistentMap}s: updating one variable shares the rest of the store, and joining or comparing
+ *  stores skips the parts they physically share. */
 class StoreLattice<T, L extends CompleteUpperSemiLattice<T>> implements CompleteUpperSemiLattice<Map<String,T>> {
     L lattice;
     Set<String> variables;
 
+    // stores are immutable, so every bottom store can be the same one
+    private PersistentMap<String, T> bottom;
+
     StoreLattice(L lattice, Set<String> variables) {
         this.lattice = lattice;
         this.variables = variables;
@@ -16,22 +20,62 @@ class StoreLattice<T, L extends CompleteUpperSemiLattice<T>> implements Complete
 
     @Override
     public Map<String, T> join(Set<Map<String, T>> elements) {
-        HashMap<String, T> res = new HashMap<>();
-        for (var v : this.variables) {
-            res.put(v, this.lattice.bottom());
+        var res = startJoin();
+        for (var element : elements) {
+            res = joinInto(res, element);
         }
+        return finishJoin(res);
+    }
 
-        for (var element : elements) {
+    @Override
+    public Map<String, T> bottom() {
+        if (this.bottom == null) {
+            PersistentMap<String, T> res = PersistentMap.empty();
             for (var v : this.variables) {
-                if (element.containsKey(v)) {
-                    res.put(v, this.lattice.join(res.get(v), element.get(v)));
-
-                } else {
-                    throw new RuntimeException(String.format("store element missing variable %s", v));
-                }
+                res = res.plus(v, this.lattice.bottom());
             }
+            this.bottom = res;
         }
 
-        return res;
+        return this.bottom;
+    }
+
+    /** return a store that maps {@param var} to {@param value} and is otherwise the same as {@param store}. */
+    Map<String, T> update(Map<String, T> store, String var, T value) {
+        return persistent(store).plus(var, value);
+    }
+
+    /** the accumulator is null until the first store is joined. */
+    @Override
+    public Map<String, T> startJoin() {
+        return null;
+    }
+
+    @Override
+    public Map<String, T> joinInto(Map<String, T> accumulator, Map<String, T> element) {
+        var store = persistent(element);
+        if (accumulator == null) {
+            // stores are never modified, so the first store can be the accumulator itself
+            return store;
+
+        } else {
+            return ((PersistentMap<String, T>) accumulator).merge(store, this.lattice::join);
+        }
+    }
+
+    @Override
+    public Map<String, T> finishJoin(Map<String, T> accumulator) {
+        return accumulator == null ? bottom() : accumulator;
+    }
+
+    /** return {@param element} as a persistent store, checking that it maps every variable. */
+    PersistentMap<String, T> persistent(Map<String, T> element) {
+        for (var v : this.variables) {
+            if (element.get(v) == null) {
+                throw new RuntimeException(String.format("store element missing variable %s", v));
+            }
+        }
+        // a persistent store is never modified, so it can be used as it is
+        return element instanceof PersistentMap<String, T> store ? store : PersistentMap.of(element);
     }
 }
@@ -0,0 +1,154 @@
+package org.example;
+
+import java.util.Arrays;
+
+/** Strongly connected components of a dependency graph, computed with an iterative version of Tarjan's algorithm.
+ *  Components are numbered in topological order of the condensation DAG: every dependency between variables in
+ *  different components goes from a lower-numbered to a higher-numbered component. */
+class StronglyConnectedComponents {
+    int numComponents;
+
+    // component of each variable, indexed by variable
+    int[] component;
+
+    // variables of component c are members[memberOffsets[c] .. memberOffsets[c+1]-1], in increasing order
+    int[] memberOffsets;
+    int[] members;
+
+    // components that depend on component c are successors[successorOffsets[c] .. successorOffsets[c+1]-1],
+    // without duplicates
+    int[] successorOffsets;
+    int[] successors;
+
+    // number of distinct components that component c depends on
+    int[] numPredecessors;
+
+    private StronglyConnectedComponents() {}
+
+    /** Compute the strongly connected components of the graph over {@param numVariables} variables whose
+     *  edges are given in CSR form by {@param childOffsets} and {@param childTargets}. */
+    static StronglyConnectedComponents compute(int numVariables, int[] childOffsets, int[] childTargets) {
+        var res = new StronglyConnectedComponents();
+        res.component = new int[numVariables];
+
+        int[] index = new int[numVariables];
+        int[] lowlink = new int[numVariables];
+        boolean[] onStack = new boolean[numVariables];
+        Arrays.fill(index, -1);
+
+        int[] stack = new int[numVariables];
+        int stackSize = 0;
+
+        // DFS call stack: the variable and the position of the next child to visit
+        int[] callVars = new int[numVariables];
+        int[] callEdges = new int[numVariables];
+
+        int nextIndex = 0;
+        int finished = 0;
+        for (int root = 0; root < numVariables; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            callVars[0] = root;
+            callEdges[0] = childOffsets[root];
+            index[root] = lowlink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int var = callVars[depth];
+                if (callEdges[depth] < childOffsets[var + 1]) {
+                    int child = childTargets[callEdges[depth]];
+                    callEdges[depth] += 1;
+
+                    if (index[child] < 0) {
+                        depth += 1;
+                        callVars[depth] = child;
+                        callEdges[depth] = childOffsets[child];
+                        index[child] = lowlink[child] = nextIndex++;
+                        stack[stackSize++] = child;
+                        onStack[child] = true;
+
+                    } else if (onStack[child]) {
+                        lowlink[var] = Math.min(lowlink[var], index[child]);
+                    }
+                    continue;
+                }
+
+                // all children visited: pop the component if var is its root
+                if (lowlink[var] == index[var]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        res.component[member] = finished;
+                    } while (member != var);
+                    finished += 1;
+                }
+
+                depth -= 1;
+                if (depth >= 0) {
+                    int parent = callVars[depth];
+                    lowlink[parent] = Math.min(lowlink[parent], lowlink[var]);
+                }
+            }
+        }
+
+        // Tarjan's algorithm finishes components in reverse topological order
+        res.numComponents = finished;
+        for (int v = 0; v < numVariables; v++) {
+            res.component[v] = finished - 1 - res.component[v];
+        }
+
+        res.buildMembers(numVariables);
+        res.buildCondensation(numVariables, childOffsets, childTargets);
+        return res;
+    }
+
+    private void buildMembers(int numVariables) {
+        this.memberOffsets = new int[this.numComponents + 1];
+        for (int v = 0; v < numVariables; v++) {
+            this.memberOffsets[this.component[v] + 1] += 1;
+        }
+        for (int c = 0; c < this.numComponents; c++) {
+            this.memberOffsets[c + 1] += this.memberOffsets[c];
+        }
+
+        this.members = new int[numVariables];
+        int[] fill = Arrays.copyOf(this.memberOffsets, this.numComponents);
+        for (int v = 0; v < numVariables; v++) {
+            this.members[fill[this.component[v]]++] = v;
+        }
+    }
+
+    private void buildCondensation(int numVariables, int[] childOffsets, int[] childTargets) {
+        this.successorOffsets = new int[this.numComponents + 1];
+        this.numPredecessors = new int[this.numComponents];
+        var successorList = new int[childTargets.length];
+        int numSuccessors = 0;
+
+        // last component that recorded c as a successor, to skip duplicate edges
+        int[] lastSource = new int[this.numComponents];
+        Arrays.fill(lastSource, -1);
+
+        for (int c = 0; c < this.numComponents; c++) {
+            this.successorOffsets[c] = numSuccessors;
+            for (int i = this.memberOffsets[c]; i < this.memberOffsets[c + 1]; i++) {
+                int var = this.members[i];
+                for (int j = childOffsets[var]; j < childOffsets[var + 1]; j++) {
+                    int target = this.component[childTargets[j]];
+                    if (target != c && lastSource[target] != c) {
+                        lastSource[target] = c;
+                        successorList[numSuccessors++] = target;
+                        this.numPredecessors[target] += 1;
+                    }
+                }
+            }
+        }
+
+        this.successorOffsets[this.numComponents] = numSuccessors;
+        this.successors = Arrays.copyOf(successorList, numSuccessors);
+    }
+}
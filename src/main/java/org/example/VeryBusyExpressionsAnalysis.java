@@ -1,60 +1,34 @@
 package org.example;
 
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 /** Backwards must-analysis that computes for every program point expressions that will definitely be computed
  * again in the future. Similar to available expressions analysis, but backwards! */
-class VeryBusyExpressionsAnalysis extends BasicDataFlowAnalysis<Set<Expression>,ReversePowersetLattice<Expression>> {
+class VeryBusyExpressionsAnalysis extends GenKillAnalysis<Expression, ReverseBitSetPowersetLattice<Expression>> {
+    ExpressionsByVariable expressionsByVariable;
+
     VeryBusyExpressionsAnalysis(ControlFlowGraph cfg) {
-        super(new ReversePowersetLattice<>(programExpressions(cfg)), cfg, DataFlowDirection.BACKWARD);
+        this(ExpressionsByVariable.programExpressions(cfg), cfg);
     }
 
-    private static Set<Expression> programExpressions(ControlFlowGraph cfg) {
-        var exprs = new HashSet<Expression>();
-        for (BasicBlock block : cfg.blockMap.values()) {
-            for (var stmt : block.statements) {
-                exprs.addAll(stmt.accept(new ComplexExpressions()));
-            }
-        }
-
-        return exprs;
+    private VeryBusyExpressionsAnalysis(ElementIndex<Expression> index, ControlFlowGraph cfg) {
+        super(new ReverseBitSetPowersetLattice<>(index), index, cfg, DataFlowDirection.BACKWARD);
+        this.expressionsByVariable = new ExpressionsByVariable(index);
     }
 
     @Override
-    Set<Expression> initial() {
-        return new HashSet<>();
+    IndexedSet<Expression> initial() {
+        return new IndexedSet<>(this.index);
     }
 
     @Override
-    Set<Expression> transfer(AtomicStatement statement, Set<Expression> input) {
+    Set<Expression> gen(BasicBlock block, AtomicStatement statement) {
         if (statement instanceof Assign assign) {
-            // all complex expressions on the RHS of the assignment have been computed for the assignment,
-            // and thus are available after the assignment
-            var res = new HashSet<>(input);
-
-            // must remove all expressions that use the newly assigned variable, since those expressions are now stale
-            Iterator<Expression> iter = res.iterator();
-            while (iter.hasNext()) {
-                Expression expr = iter.next();
-
-                if (expr.accept(new ExpressionVariables()).contains(assign.var)) {
-                    iter.remove();
-                }
-            }
-
-            // finally, add all expressions computed from the RHS
-            res.addAll(assign.rhs.accept(new ComplexExpressions()));
-
-            return res;
+            // all complex expressions on the RHS are computed by the assignment
+            return assign.rhs.accept(new ComplexExpressions());
 
         } else if (statement instanceof Output output) {
-            // all complex expressions on the RHS of the assignment have been computed for the assignment,
-            // and thus are available after the assignment
-            var res = new HashSet<>(input);
-            res.addAll(output.expr.accept(new ComplexExpressions()));
-            return res;
+            return output.expr.accept(new ComplexExpressions());
 
         } else {
             throw new RuntimeException("unreachable");
@@ -62,9 +36,18 @@ class VeryBusyExpressionsAnalysis extends BasicDataFlowAnalysis<Set<Expression>,
     }
 
     @Override
-    Set<Expression> transfer(Expression guard, Set<Expression> input) {
-        var res = new HashSet<>(input);
-        res.addAll(guard.accept(new ComplexExpressions()));
-        return res;
+    Set<Expression> kill(BasicBlock block, AtomicStatement statement) {
+        if (statement instanceof Assign assign) {
+            // must remove all expressions that use the newly assigned variable, since those expressions are now stale
+            return this.expressionsByVariable.mentioning(assign.var);
+
+        } else {
+            return Set.of();
+        }
+    }
+
+    @Override
+    Set<Expression> gen(Expression guard) {
+        return guard.accept(new ComplexExpressions());
     }
 }
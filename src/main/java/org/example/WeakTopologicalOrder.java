@@ -0,0 +1,246 @@
+package org.example;
+
+import java.util.*;
+
+/** Element of a weak topological ordering: either a single variable or a component. */
+abstract class WtoElement {}
+
+/** Variable that is not the head of any component. */
+class WtoVertex extends WtoElement {
+    int var;
+
+    WtoVertex(int var) {
+        this.var = var;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("var(%d)", this.var);
+    }
+}
+
+/** Strongly connected subgraph with a distinguished head; the body is itself weakly topologically ordered. */
+class WtoComponent extends WtoElement {
+    int head;
+    List<WtoElement> body;
+
+    // number of times the component was iterated by the last solve that used it, over all the times it was entered;
+    // orderings are computed afresh for each solve, so it starts at 0
+    int iterations;
+
+    WtoComponent(int head, List<WtoElement> body) {
+        this.head = head;
+        this.body = body;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        builder.append('(');
+        builder.append(String.format("var(%d)", this.head));
+        for (WtoElement element : this.body) {
+            builder.append(' ');
+            builder.append(element);
+        }
+        builder.append(')');
+        return builder.toString();
+    }
+}
+
+/** Hierarchical ordering of a dependency graph computed by Bourdoncle's algorithm,
+ *  where every cycle is contained in a component whose head is visited first. */
+class WeakTopologicalOrder {
+    List<WtoElement> elements;
+
+    private WeakTopologicalOrder(List<WtoElement> elements) {
+        this.elements = elements;
+    }
+
+    /** Compute a weak topological ordering of the graph over {@param numVariables} variables whose
+     *  edges are given in CSR form by {@param childOffsets} and {@param childTargets}.
+     *  Depth-first traversals start from the variables in {@param roots}, in order. */
+    static WeakTopologicalOrder compute(int numVariables, int[] childOffsets, int[] childTargets, int[] roots) {
+        return new Builder(numVariables, childOffsets, childTargets).build(roots);
+    }
+
+    /** Return all components, including nested ones, in order. */
+    List<WtoComponent> components() {
+        var res = new ArrayList<WtoComponent>();
+        collectComponents(this.elements, res);
+        return res;
+    }
+
+    private static void collectComponents(List<WtoElement> elements, List<WtoComponent> res) {
+        for (WtoElement element : elements) {
+            if (element instanceof WtoComponent component) {
+                res.add(component);
+                collectComponents(component.body, res);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (WtoElement element : this.elements) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(element);
+        }
+
+        return builder.toString();
+    }
+
+    /** Iterative version of Bourdoncle's recursive algorithm, so that deep graphs don't overflow the stack. */
+    private static class Builder {
+        int[] childOffsets;
+        int[] childTargets;
+        int[] dfn;
+        int[] vertexStack;
+        int vertexStackSize;
+        ArrayDeque<Frame> frames;
+        int num;
+
+        Builder(int numVariables, int[] childOffsets, int[] childTargets) {
+            this.childOffsets = childOffsets;
+            this.childTargets = childTargets;
+            this.dfn = new int[numVariables];
+            this.vertexStack = new int[numVariables];
+            this.vertexStackSize = 0;
+            this.frames = new ArrayDeque<>();
+            this.num = 0;
+        }
+
+        /** Pending call of visit or component in the recursive formulation. */
+        private static class Frame {
+            int var;
+
+            // next unexplored position in childTargets, and the end of var's children
+            int nextChild;
+            int endChild;
+            boolean isComponent;
+
+            // partition that the result of the frame is prepended to
+            LinkedList<WtoElement> partition;
+
+            // visit frames only
+            int head;
+            boolean loop;
+
+            // component frames only
+            LinkedList<WtoElement> body;
+
+            Frame(int var, int nextChild, int endChild, LinkedList<WtoElement> partition) {
+                this.var = var;
+                this.nextChild = nextChild;
+                this.endChild = endChild;
+                this.partition = partition;
+            }
+
+            boolean hasNextChild() {
+                return this.nextChild < this.endChild;
+            }
+        }
+
+        private Frame frame(int var, LinkedList<WtoElement> partition) {
+            return new Frame(var, this.childOffsets[var], this.childOffsets[var + 1], partition);
+        }
+
+        WeakTopologicalOrder build(int[] roots) {
+            var partition = new LinkedList<WtoElement>();
+            for (int root : roots) {
+                if (this.dfn[root] == 0) {
+                    pushVisit(root, partition);
+                    run();
+                }
+            }
+
+            return new WeakTopologicalOrder(partition);
+        }
+
+        private void pushVisit(int var, LinkedList<WtoElement> partition) {
+            this.vertexStack[this.vertexStackSize] = var;
+            this.vertexStackSize += 1;
+            this.num += 1;
+            this.dfn[var] = this.num;
+
+            var frame = frame(var, partition);
+            frame.head = this.num;
+            frame.loop = false;
+            this.frames.push(frame);
+        }
+
+        private void pushComponent(int var, LinkedList<WtoElement> partition) {
+            var frame = frame(var, partition);
+            frame.isComponent = true;
+            frame.body = new LinkedList<>();
+            this.frames.push(frame);
+        }
+
+        private void run() {
+            while (!this.frames.isEmpty()) {
+                Frame frame = this.frames.peek();
+
+                if (frame.isComponent) {
+                    if (frame.hasNextChild()) {
+                        int succ = this.childTargets[frame.nextChild++];
+                        if (this.dfn[succ] == 0) {
+                            pushVisit(succ, frame.body);
+                        }
+
+                    } else {
+                        this.frames.pop();
+                        frame.partition.addFirst(new WtoComponent(frame.var, frame.body));
+                    }
+
+                } else if (frame.hasNextChild()) {
+                    int succ = this.childTargets[frame.nextChild++];
+                    if (this.dfn[succ] == 0) {
+                        pushVisit(succ, frame.partition);
+
+                    } else {
+                        returnHead(frame, this.dfn[succ]);
+                    }
+
+                } else {
+                    this.frames.pop();
+
+                    // the parent visit (if any) sees the head before the component is built,
+                    // which matches the recursive formulation since the parent does not use the partition
+                    if (!this.frames.isEmpty() && !this.frames.peek().isComponent) {
+                        returnHead(this.frames.peek(), frame.head);
+                    }
+
+                    if (frame.head == this.dfn[frame.var]) {
+                        this.dfn[frame.var] = Integer.MAX_VALUE;
+                        int element = popVertex();
+
+                        if (frame.loop) {
+                            while (element != frame.var) {
+                                this.dfn[element] = 0;
+                                element = popVertex();
+                            }
+                            pushComponent(frame.var, frame.partition);
+
+                        } else {
+                            frame.partition.addFirst(new WtoVertex(frame.var));
+                        }
+                    }
+                }
+            }
+        }
+
+        private int popVertex() {
+            this.vertexStackSize -= 1;
+            return this.vertexStack[this.vertexStackSize];
+        }
+
+        private void returnHead(Frame frame, int min) {
+            if (min <= frame.head) {
+                frame.head = min;
+                frame.loop = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Function;
+
+/** Allocation regression gate; run with {@code ./gradlew allocationTest}.
+ *  Measures the bytes each analysis allocates per solver iteration on a generated program, and fails if an analysis
+ *  exceeds its budget in {@code allocation-budgets.properties}. Lower a budget when an analysis gets leaner. */
+@Tag("allocation")
+public class AllocationTest {
+    static final int WARMUP_RUNS = 5;
+    static final int MEASURED_RUNS = 5;
+
+    static LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>> analyses() {
+        var res = new LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>>();
+        res.put("LivenessAnalysis", LivenessAnalysis::new);
+        res.put("ReachingDefinitionsAnalysis", ReachingDefinitionsAnalysis::new);
+        res.put("AvailableExpressionsAnalysis", AvailableExpressionsAnalysis::new);
+        res.put("VeryBusyExpressionsAnalysis", VeryBusyExpressionsAnalysis::new);
+        res.put("SignAnalysis", SignAnalysis::new);
+        res.put("InformationFlowAnalysis", InformationFlowAnalysis::new);
+        res.put("IntervalAnalysis", IntervalAnalysis::new);
+        res.put("FusedAnalysis", cfg -> new FusedAnalysis(List.of(new SignAnalysis(cfg), new InformationFlowAnalysis(cfg))));
+        return res;
+    }
+
+    static Properties budgets() throws IOException {
+        var res = new Properties();
+        try (var stream = AllocationTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            Assertions.assertNotNull(stream, "missing allocation-budgets.properties");
+            res.load(stream);
+        }
+        return res;
+    }
+
+    /** return the fewest bytes allocated per iteration by the current thread over the measured runs of {@param analysis}.
+     *  The minimum is the least disturbed by compilation happening during a run. */
+    static long bytesPerIteration(Function<ControlFlowGraph, DataFlowAnalysis<?, ?>> analysis, ControlFlowGraph cfg) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int run = 0; run < WARMUP_RUNS; run++) {
+            analysis.apply(cfg).analyze();
+        }
+
+        long res = Long.MAX_VALUE;
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            var instance = analysis.apply(cfg);
+            long before = threads.getThreadAllocatedBytes(thread);
+            instance.analyze();
+            long bytes = threads.getThreadAllocatedBytes(thread) - before;
+            res = Math.min(res, bytes / Math.max(1, instance.solver.iterations));
+        }
+        return res;
+    }
+
+    @Test
+    public void testAllocationBudgets() throws IOException {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assertions.assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        var budgets = budgets();
+        var cfg = new AtomicCFGBuilder().buildCFG(ProgramGenerator.generate(11, 2000));
+
+        var failures = new ArrayList<String>();
+        for (var kv : analyses().entrySet()) {
+            var budget = budgets.getProperty(kv.getKey());
+            Assertions.assertNotNull(budget, String.format("no allocation budget for %s", kv.getKey()));
+
+            long bytes = bytesPerIteration(kv.getValue(), cfg);
+            System.out.printf("%s: %d bytes/iteration (budget %s)%n", kv.getKey(), bytes, budget);
+            if (bytes > Long.parseLong(budget.trim())) {
+                failures.add(String.format("%s allocates %d bytes/iteration, budget is %s", kv.getKey(), bytes, budget.trim()));
+            }
+        }
+
+        Assertions.assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+}
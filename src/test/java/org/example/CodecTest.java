@@ -0,0 +1,209 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public class CodecTest {
+    static List<Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>> analyses = List.of(
+        LivenessAnalysis::new,
+        ReachingDefinitionsAnalysis::new,
+        AvailableExpressionsAnalysis::new,
+        VeryBusyExpressionsAnalysis::new,
+        SignAnalysis::new,
+        InformationFlowAnalysis::new,
+        IntervalAnalysis::new
+    );
+
+    static List<ControlFlowGraph> cfgs() {
+        var programs = new ArrayList<>(DataFlowAnalysisTest.programs);
+        programs.add(ProgramGenerator.generate(9, 1000));
+
+        var res = new ArrayList<ControlFlowGraph>();
+        for (Block program : programs) {
+            res.add(new AtomicCFGBuilder().buildCFG(program));
+            res.add(new BasicBlockCFGBuilder().buildCFG(program));
+        }
+        return res;
+    }
+
+    @Test
+    public void testCfgRoundTrip() throws IOException {
+        var file = Files.createTempFile("cfg", ".bin");
+        try {
+            for (var cfg : cfgs()) {
+                CfgCodec.write(cfg, file);
+                var mapped = CfgCodec.open(file);
+                Assertions.assertEquals(cfg.blockMap.size(), mapped.numBlocks);
+                Assertions.assertEquals(cfg.expressions.size(), mapped.numExpressions);
+
+                // single blocks can be decoded without the rest of the CFG
+                Assertions.assertEquals(cfg.blockMap.get(cfg.exitBlock).toString(), mapped.block(cfg.exitBlock).toString());
+
+                var loaded = mapped.toControlFlowGraph();
+                Assertions.assertEquals(cfg.toString(), loaded.toString());
+                Assertions.assertEquals(cfg.entryBlock, loaded.entryBlock);
+                Assertions.assertEquals(cfg.exitBlock, loaded.exitBlock);
+                Assertions.assertEquals(cfg.curBlockId, loaded.curBlockId);
+                for (int id = 0; id < cfg.expressions.size(); id++) {
+                    Assertions.assertEquals(cfg.expressions.get(id), loaded.expressions.get(id));
+                }
+
+                for (var analysis : analyses) {
+                    Assertions.assertEquals(analysis.apply(cfg).analyze(), analysis.apply(loaded).analyze());
+                }
+            }
+
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSolutionRoundTrip() throws IOException {
+        var file = Files.createTempFile("solution", ".bin");
+        try {
+            for (var cfg : cfgs()) {
+                for (var analysisBuilder : analyses) {
+                    roundTrip(analysisBuilder.apply(cfg), file);
+                }
+            }
+
+            // decoding against another universe is an error
+            var cfgs = cfgs();
+            var analysis = new LivenessAnalysis(cfgs.get(0));
+            SolutionCodec.write(analysis, analysis.analyze(), file);
+            var other = new LivenessAnalysis(cfgs.get(cfgs.size() - 1));
+            Assertions.assertThrows(RuntimeException.class, () -> SolutionCodec.open(other, file));
+
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testAnalysisCache() throws IOException {
+        var directory = Files.createTempDirectory("cache");
+        try {
+            var cfgs = cfgs();
+            var cache = new AnalysisCache(1 << 20, directory, 1 << 20);
+            for (var cfg : cfgs) {
+                for (var analysis : analyses) {
+                    Assertions.assertEquals(analysis.apply(cfg).analyze(), cache.analyze(analysis.apply(cfg)));
+                }
+            }
+            // some small programs have equal CFGs of atomic statements and of basic blocks
+            Assertions.assertEquals(cfgs.size() * analyses.size(), cache.misses + cache.memoryHits);
+            long memoryHits = cache.memoryHits;
+
+            // a structurally equal CFG hits in memory, without solving
+            for (var analysis : analyses) {
+                var cfg = new BasicBlockCFGBuilder().buildCFG(DataFlowAnalysisTest.programs.get(0));
+                var cached = analysis.apply(cfg);
+                Assertions.assertEquals(analysis.apply(cfg).analyze(), cache.analyze(cached));
+                Assertions.assertNull(cached.solver);
+            }
+            Assertions.assertEquals(memoryHits + analyses.size(), cache.memoryHits);
+
+            // a new cache over the same directory hits on disk, then in memory
+            cache = new AnalysisCache(1 << 20, directory, 1 << 20);
+            var cfg = cfgs.get(cfgs.size() - 1);
+            var expected = new SignAnalysis(cfg).analyze();
+            Assertions.assertEquals(expected, cache.analyze(new SignAnalysis(cfg)));
+            Assertions.assertEquals(expected, cache.analyze(new SignAnalysis(cfg)));
+            Assertions.assertEquals(1, cache.diskHits);
+            Assertions.assertEquals(1, cache.memoryHits);
+            Assertions.assertEquals(0, cache.misses);
+
+            // an edited CFG misses
+            var block = cfg.blockMap.values().stream().filter(b -> !b.statements.isEmpty()).findFirst().get();
+            var original = block.statements.getFirst();
+            cfg.replaceStatement(block.id, 0, new Output(new Literal(7)));
+            cache.analyze(new SignAnalysis(cfg));
+            Assertions.assertEquals(1, cache.misses);
+
+            // reverting the edit hits again, although the interner still holds the expressions of the edit, and
+            // computing keys never interns
+            cfg.replaceStatement(block.id, 0, original);
+            int interned = cfg.expressions.size();
+            var reverted = new SignAnalysis(cfg);
+            Assertions.assertEquals(expected, cache.analyze(reverted));
+            Assertions.assertEquals(1, cache.misses);
+            Assertions.assertEquals(interned, cfg.expressions.size());
+
+            // so does changing a block directly, without going through the CFG
+            block.statements.set(0, new Output(new Literal(8)));
+            cache.analyze(new SignAnalysis(cfg));
+            Assertions.assertEquals(2, cache.misses);
+
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (var file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testAnalysisCacheEviction() throws IOException {
+        var directory = Files.createTempDirectory("cache");
+        try {
+            var cfgs = cfgs();
+            var sizes = new ArrayList<Integer>();
+            for (var cfg : cfgs) {
+                var analysis = new LivenessAnalysis(cfg);
+                sizes.add(SolutionCodec.encode(analysis.analyze(), ElementCodec.forLattice(analysis.lattice)).length);
+            }
+
+            // room for the last two solutions only, in both tiers
+            int last = sizes.get(sizes.size() - 1);
+            int bound = last + sizes.get(sizes.size() - 2);
+            var cache = new AnalysisCache(bound, directory, bound);
+            for (var cfg : cfgs) {
+                cache.analyze(new LivenessAnalysis(cfg));
+                Assertions.assertTrue(cache.memoryBytes() <= bound);
+                Assertions.assertTrue(cache.diskBytes() <= bound);
+            }
+            Assertions.assertTrue(cache.memoryEvictions > 0);
+            Assertions.assertTrue(cache.diskEvictions > 0);
+
+            // the most recently used solution is kept, the least recently used ones are not
+            cache.analyze(new LivenessAnalysis(cfgs.get(cfgs.size() - 1)));
+            Assertions.assertEquals(1, cache.memoryHits);
+            cache = new AnalysisCache(bound, directory, bound);
+            cache.analyze(new LivenessAnalysis(cfgs.get(0)));
+            Assertions.assertEquals(1, cache.misses);
+            try (var files = Files.list(directory)) {
+                Assertions.assertTrue(files.mapToLong(file -> file.toFile().length()).sum() <= bound);
+            }
+
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (var file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static <T> void roundTrip(DataFlowAnalysis<T, ?> analysis, Path file) throws IOException {
+        var solution = analysis.analyze();
+        SolutionCodec.write(analysis, solution, file);
+
+        var mapped = SolutionCodec.open(analysis, file);
+        Assertions.assertEquals(solution, mapped.toMap());
+        for (int blockId : solution.keySet()) {
+            Assertions.assertEquals(solution.get(blockId), mapped.get(blockId));
+        }
+        Assertions.assertNull(mapped.get(analysis.cfg.curBlockId));
+    }
+}
@@ -3,6 +3,7 @@ package org.example;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -48,4 +49,68 @@ class ControlFlowGraphTest {
 
         assertEquals(6, cfg.blockMap.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSimplifyChains() {
+        // entry -> 1 -> 2 -> ... -> n -> exit, all empty, plus an unreachable empty loop
+        var cfg = new ControlFlowGraph();
+        var exit = cfg.createBlock(new LinkedList<>(), new Halt());
+        cfg.exitBlock = exit.id;
+        int next = exit.id;
+        for (int i = 0; i < 100000; i++) {
+            next = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(next)).id;
+        }
+        var entry = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(next));
+        cfg.entryBlock = entry.id;
+
+        var loop = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(-1));
+        var back = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(loop.id));
+        ((UnconditionalJump) loop.jump).target = back.id;
+
+        cfg.simplify();
+        assertEquals(2, cfg.blockMap.size());
+        assertEquals(exit.id, ((UnconditionalJump) cfg.blockMap.get(entry.id).jump).target);
+    }
+
+    @Test
+    public void testSimplifyInfiniteLoop() {
+        // entry -> 1 -> 2 -> 1, never reaching the exit
+        var cfg = new ControlFlowGraph();
+        var exit = cfg.createBlock(new LinkedList<>(), new Halt());
+        cfg.exitBlock = exit.id;
+        var first = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(-1));
+        var second = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(first.id));
+        ((UnconditionalJump) first.jump).target = second.id;
+        var entry = cfg.createBlock(new LinkedList<>(), new UnconditionalJump(first.id));
+        cfg.entryBlock = entry.id;
+
+        cfg.simplify();
+        assertEquals(3, cfg.blockMap.size());
+        assertTrue(cfg.blockMap.containsKey(exit.id));
+        int target = ((UnconditionalJump) cfg.blockMap.get(entry.id).jump).target;
+        assertEquals(target, ((UnconditionalJump) cfg.blockMap.get(target).jump).target);
+    }
+
+    @Test
+    public void testSimplifyFuse() {
+        for (long seed = 1; seed <= 5; seed++) {
+            var program = ProgramGenerator.generate(seed, 2000);
+            var fused = new AtomicCFGBuilder().buildCFG(program);
+            fused.simplify(true);
+            var basic = new BasicBlockCFGBuilder().buildCFG(program);
+
+            // fusing atomic statements gives back the basic blocks, with the same facts at the entry and exit
+            assertEquals(basic.blockMap.size(), fused.blockMap.size());
+            assertTrue(fused.blockMap.get(fused.entryBlock).statements.isEmpty());
+            assertTrue(fused.blockMap.get(fused.exitBlock).statements.isEmpty());
+            assertEquals(
+                new SignAnalysis(basic).analyze().get(basic.exitBlock),
+                new SignAnalysis(fused).analyze().get(fused.exitBlock)
+            );
+            assertEquals(
+                new LivenessAnalysis(basic).analyze().get(basic.entryBlock),
+                new LivenessAnalysis(fused).analyze().get(fused.entryBlock)
+            );
+        }
+    }
+}
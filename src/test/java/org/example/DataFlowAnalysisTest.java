@@ -4,7 +4,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 class DataFlowAnalysisTest {
     static Block program1 =
@@ -79,6 +82,26 @@ class DataFlowAnalysisTest {
             new Output(new Var("x"))
         })));
 
+    static Block program6 =
+        new Block(new ArrayList<>(List.of(new Statement[]{
+            new Assign("i", new Literal(0)),
+            new While(
+                new Var("i"),
+                new Block(new ArrayList<>(List.of(new Statement[]{
+                    new Assign("j", new Var("i")),
+                    new While(
+                        new Var("j"),
+                        new Block(new ArrayList<>(List.of(new Statement[]{
+                            new Assign("k", new Multiply(new Var("j"), new Var("i"))),
+                            new Assign("j", new Add(new Var("j"), new Literal(-1)))
+                        })))
+                    ),
+                    new Assign("i", new Add(new Var("i"), new Input()))
+                })))
+            ),
+            new Output(new Var("k"))
+        })));
+
     private
     <T, L extends CompleteUpperSemiLattice<T>>
     void testAnalysis(Block program, Function<ControlFlowGraph,DataFlowAnalysis<T,L>> analysisBuilder) {
@@ -122,4 +145,759 @@ class DataFlowAnalysisTest {
         var cfg = new AtomicCFGBuilder().buildCFG(program5);
         Assertions.assertFalse(InformationFlowChecker.check(cfg));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testInformationFlowAnalysisBasicBlocks() {
+        Assertions.assertTrue(InformationFlowChecker.check(new BasicBlockCFGBuilder().buildCFG(program4)));
+        // x := input; output(x) is a single block, so the output must be checked against the store inside it
+        Assertions.assertFalse(InformationFlowChecker.check(new BasicBlockCFGBuilder().buildCFG(program5)));
+    }
+
+    static List<Block> programs = List.of(program1, program2, program3, program4, program5, program6);
+
+    static List<Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>> analyses = List.of(
+        LivenessAnalysis::new,
+        ReachingDefinitionsAnalysis::new,
+        AvailableExpressionsAnalysis::new,
+        VeryBusyExpressionsAnalysis::new,
+        SignAnalysis::new,
+        InformationFlowAnalysis::new
+    );
+
+    @Test
+    public void testReversePostorderIterations() {
+        for (Block program : programs) {
+            for (var analysisBuilder : analyses) {
+                var cfg = new AtomicCFGBuilder().buildCFG(program);
+
+                var fifoAnalysis = analysisBuilder.apply(cfg);
+                var fifoSolution = fifoAnalysis.analyze(SolverStrategy.FIFO);
+                int fifoIterations = fifoAnalysis.solver.iterations;
+
+                var rpoAnalysis = analysisBuilder.apply(cfg);
+                var rpoSolution = rpoAnalysis.analyze(SolverStrategy.REVERSE_POSTORDER);
+                int rpoIterations = rpoAnalysis.solver.iterations;
+
+                System.out.printf(
+                    "%s: FIFO %d iterations, reverse postorder %d iterations\n",
+                    fifoAnalysis.getClass().getSimpleName(), fifoIterations, rpoIterations
+                );
+
+                Assertions.assertEquals(fifoSolution, rpoSolution);
+                Assertions.assertTrue(rpoIterations <= fifoIterations);
+            }
+        }
+    }
+
+    @Test
+    public void testWeakTopologicalOrder() {
+        for (Block program : programs) {
+            for (var analysisBuilder : analyses) {
+                var cfg = new AtomicCFGBuilder().buildCFG(program);
+                var fifoSolution = analysisBuilder.apply(cfg).analyze(SolverStrategy.FIFO);
+
+                var wtoAnalysis = analysisBuilder.apply(cfg);
+                var wtoSolution = wtoAnalysis.analyze(SolverStrategy.WEAK_TOPOLOGICAL);
+
+                System.out.printf("%s: %s\n", wtoAnalysis.getClass().getSimpleName(), wtoAnalysis.solver.wto);
+                for (WtoComponent component : wtoAnalysis.solver.wto.components()) {
+                    System.out.printf("  component headed by %s iterated %d times\n", component.head, component.iterations);
+                }
+
+                Assertions.assertEquals(fifoSolution, wtoSolution);
+            }
+        }
+
+        // the inner loop of program6 is a component nested in the component of the outer loop
+        var cfg = new AtomicCFGBuilder().buildCFG(program6);
+        var analysis = new LivenessAnalysis(cfg);
+        analysis.analyze(SolverStrategy.WEAK_TOPOLOGICAL);
+
+        var components = analysis.solver.wto.components();
+        Assertions.assertEquals(2, components.size());
+        Assertions.assertTrue(components.get(0).body.contains(components.get(1)));
+
+        // the inner loop is stabilized again on each iteration of the outer one, and its count adds up
+        var sign = new SignAnalysis(cfg);
+        sign.analyze(SolverStrategy.WEAK_TOPOLOGICAL);
+        var signComponents = sign.solver.wto.components();
+        Assertions.assertTrue(signComponents.get(0).iterations > 1);
+        Assertions.assertTrue(signComponents.get(1).iterations > signComponents.get(0).iterations);
+    }
+
+    @Test
+    public void testBitSetLivenessAnalysis() {
+        var cfg = new AtomicCFGBuilder().buildCFG(program2);
+        var solution = new LivenessAnalysis(cfg).analyze();
+
+        // a and b are used before they are assigned; the set view compares equal to any other set
+        Assertions.assertEquals(Set.of("a", "b"), solution.get(cfg.entryBlock));
+        Assertions.assertEquals(Set.of(), solution.get(cfg.exitBlock));
+    }
+
+    @Test
+    public void testBitSetReachingDefinitionsAnalysis() {
+        var cfg = new AtomicCFGBuilder().buildCFG(program1);
+        var solution = new ReachingDefinitionsAnalysis(cfg).analyze();
+
+        // both definitions of y reach the end, but the first definition of x is killed
+        var reachingVars = new ArrayList<String>();
+        for (var def : solution.get(cfg.exitBlock)) {
+            reachingVars.add(def.var);
+        }
+        Collections.sort(reachingVars);
+        Assertions.assertEquals(List.of("x", "y", "y"), reachingVars);
+    }
+
+    @Test
+    public void testSymbolicUniverse() {
+        var index = new ElementIndex<>(List.of("a", "b", "c"));
+        var lattice = new ReverseBitSetPowersetLattice<>(index);
+
+        // bottom is one shared universe, which joins skip and which equals the explicit set of every element
+        var top = lattice.bottom();
+        Assertions.assertSame(top, lattice.bottom());
+        Assertions.assertTrue(top instanceof UniverseSet);
+        Assertions.assertEquals(Set.of("a", "b", "c"), top);
+        Assertions.assertEquals(top, top.copy());
+        Assertions.assertEquals(top.copy(), top);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> top.remove("a"));
+
+        var withoutA = top.copy();
+        withoutA.remove("a");
+        Assertions.assertNotEquals(top, withoutA);
+        Assertions.assertSame(top, lattice.join(top, top));
+        Assertions.assertEquals(Set.of("b", "c"), lattice.join(top, withoutA));
+        Assertions.assertEquals(Set.of("b", "c"), withoutA);
+    }
+
+    @Test
+    public void testVeryBusyExpressionsInLoop() {
+        var cfg = new AtomicCFGBuilder().buildCFG(program3);
+        var solution = new VeryBusyExpressionsAnalysis(cfg).analyze();
+
+        // (a * b) is very busy right after b is assigned, whichever way the loop goes
+        var ab = new Multiply(new Var("a"), new Var("b"));
+        for (var block : cfg.blockMap.values()) {
+            if (block.statements.size() == 1 && block.statements.getFirst() instanceof Assign assign && assign.var.equals("b")) {
+                var successor = block.jump.possibleTargets().iterator().next();
+                Assertions.assertTrue(solution.get(successor).contains(ab));
+            }
+        }
+    }
+
+    @Test
+    public void testExpressionInterning() {
+        var interner = new ExpressionInterner();
+        var e1 = interner.intern(new Add(new Var("a"), new Multiply(new Var("b"), new Literal(2))));
+        var e2 = interner.intern(new Add(new Var("a"), new Multiply(new Var("b"), new Literal(2))));
+        var e3 = interner.intern(new Multiply(new Var("a"), new Multiply(new Var("b"), new Literal(2))));
+
+        Assertions.assertSame(e1, e2);
+        Assertions.assertNotEquals(e1, e3);
+        Assertions.assertSame(((Add) e1).rhs, ((Multiply) e3).rhs);
+
+        // a, b, 2, b * 2, a + b * 2, a * (b * 2)
+        Assertions.assertEquals(6, interner.size());
+        Assertions.assertSame(e3, interner.get(e3.id));
+
+        // hash codes do not depend on the run, so neither does iterating over hash sets of expressions
+        Assertions.assertEquals(-1690170030, new Add(new Input(), new Multiply(new Var("a"), new Literal(2))).hashCode());
+
+        // the CFG builder interns the expressions of statements and guards
+        var cfg = new AtomicCFGBuilder().buildCFG(program3);
+        var ab = cfg.expressions.intern(new Multiply(new Var("a"), new Var("b")));
+        int occurrences = 0;
+        for (var block : cfg.blockMap.values()) {
+            for (var stmt : block.statements) {
+                for (var expr : stmt.accept(new ComplexExpressions())) {
+                    if (expr == ab) {
+                        occurrences += 1;
+                    }
+                }
+            }
+        }
+        Assertions.assertEquals(2, occurrences);
+    }
+
+    /** Normalize facts so that they can be compared across CFGs with different block IDs. */
+    private static Object normalizeFact(Object fact) {
+        if (fact instanceof Set<?> set) {
+            var res = new HashSet<String>();
+            for (Object element : set) {
+                res.add(element instanceof Definition def ? def.var + " := " + def.rhs : element.toString());
+            }
+            return res;
+
+        } else {
+            return fact;
+        }
+    }
+
+    @Test
+    public void testBasicBlockDataFlow() {
+        for (Block program : programs) {
+            for (var analysisBuilder : analyses) {
+                var atomicCfg = new AtomicCFGBuilder().buildCFG(program);
+                var atomicAnalysis = analysisBuilder.apply(atomicCfg);
+                var atomicSolution = atomicAnalysis.analyze();
+
+                var basicCfg = new BasicBlockCFGBuilder().buildCFG(program);
+                var basicAnalysis = analysisBuilder.apply(basicCfg);
+                var basicSolution = basicAnalysis.analyze();
+
+                // the fact at the end of the program (resp. start, for backward analyses) must not depend on the CFG
+                boolean forward = atomicAnalysis.direction == DataFlowDirection.FORWARD;
+                Assertions.assertEquals(
+                    normalizeFact(atomicSolution.get(forward ? atomicCfg.exitBlock : atomicCfg.entryBlock)),
+                    normalizeFact(basicSolution.get(forward ? basicCfg.exitBlock : basicCfg.entryBlock))
+                );
+                Assertions.assertTrue(basicCfg.blockMap.size() < atomicCfg.blockMap.size());
+            }
+        }
+    }
+
+    @Test
+    public void testStatementFacts() {
+        var cfg = new BasicBlockCFGBuilder().buildCFG(program5);
+        var analysis = new LivenessAnalysis(cfg);
+        var solution = analysis.analyze();
+
+        BasicBlock block = null;
+        for (var b : cfg.blockMap.values()) {
+            if (b.statements.size() == 2) {
+                block = b;
+            }
+        }
+        Assertions.assertNotNull(block);
+
+        // x := input; output(x)
+        var facts = analysis.statementFacts(solution, block.id);
+        Assertions.assertEquals(List.of(Set.of(), Set.of("x"), Set.of()), facts);
+    }
+
+    @Test
+    public void testPersistentMap() {
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        var expected = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            map = map.plus(i, i * i);
+            expected.put(i, i * i);
+        }
+        Assertions.assertEquals(expected, map);
+        Assertions.assertEquals(map, expected);
+
+        // updates leave the original map unchanged, and storing the same value returns the same map
+        var updated = map.plus(7, -1);
+        Assertions.assertEquals(Integer.valueOf(49), map.get(7));
+        Assertions.assertEquals(Integer.valueOf(-1), updated.get(7));
+        Assertions.assertNotEquals(map, updated);
+        Assertions.assertSame(map, map.plus(7, map.get(7)));
+
+        // merging a map with an update of itself only recomputes the updated path
+        var merged = map.merge(updated, Math::max);
+        Assertions.assertEquals(map, merged);
+        Assertions.assertSame(map, merged);
+
+        // "Aa" and "BB" have the same hash code
+        PersistentMap<String, Integer> collisions = PersistentMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2);
+        Assertions.assertEquals(Map.of("Aa", 1, "BB", 2), collisions);
+        Assertions.assertEquals(PersistentMap.<String, Integer>empty().plus("BB", 2).plus("Aa", 1), collisions);
+    }
+
+    @Test
+    public void testPersistentStores() {
+        var lattice = new StoreLattice<>(new SignLattice(), Set.of("a", "b", "c"));
+        var store = lattice.update(lattice.bottom(), "a", Sign.POS);
+        var joined = lattice.join(Set.of(store, lattice.update(lattice.bottom(), "b", Sign.NEG)));
+
+        Assertions.assertTrue(joined instanceof PersistentMap);
+        Assertions.assertEquals(Map.of("a", Sign.POS, "b", Sign.NEG, "c", Sign.NO_SIGN), joined);
+
+        var missing = new HashMap<>(lattice.bottom());
+        missing.remove("a");
+        Assertions.assertThrows(RuntimeException.class, () -> lattice.join(Set.of(lattice.bottom(), missing)));
+
+        // so does a persistent store over other variables of the same number
+        var other = PersistentMap.<String, Sign>empty().plus("a", Sign.POS).plus("b", Sign.POS).plus("d", Sign.POS);
+        Assertions.assertThrows(RuntimeException.class, () -> lattice.join(Set.of(lattice.bottom(), other)));
+    }
+
+    @Test
+    public void testEnumStores() {
+        var lattice = new EnumStoreLattice<>(new SignLattice(), Sign.class, Set.of("a", "b", "c"));
+        for (Sign lhs : Sign.values()) {
+            for (Sign rhs : Sign.values()) {
+                Assertions.assertEquals(lattice.lattice.join(lhs, rhs), lattice.join(lhs, rhs));
+            }
+        }
+
+        var store = lattice.update(lattice.bottom(), "a", Sign.POS);
+        var joined = lattice.join(Set.of(store, lattice.update(store, "a", Sign.NEG), new HashMap<>(Map.of("a", Sign.ZERO, "b", Sign.ZERO, "c", Sign.NO_SIGN))));
+        Assertions.assertEquals(Map.of("a", Sign.UNKNOWN, "b", Sign.ZERO, "c", Sign.NO_SIGN), joined);
+        Assertions.assertEquals(Map.of("a", Sign.POS, "b", Sign.NO_SIGN, "c", Sign.NO_SIGN), store);
+        Assertions.assertThrows(RuntimeException.class, () -> lattice.join(Set.of(store, Map.of("a", Sign.POS))));
+
+        // the dense stores must agree with stores backed by maps
+        for (Block program : programs) {
+            var cfg = new AtomicCFGBuilder().buildCFG(program);
+            var analysis = new SignAnalysis(cfg);
+            var mapLattice = new StoreLattice<>(new SignLattice(), analysis.lattice.bottom().keySet());
+            var mapAnalysis = new BasicDataFlowAnalysis<Map<String, Sign>, StoreLattice<Sign, SignLattice>>(mapLattice, cfg, DataFlowDirection.FORWARD) {
+                @Override
+                Map<String, Sign> transfer(AtomicStatement statement, Map<String, Sign> input) {
+                    return PersistentMap.of(analysis.transfer(statement, input));
+                }
+
+                @Override
+                Map<String, Sign> transfer(Expression guard, Map<String, Sign> input) {
+                    return input;
+                }
+            };
+            Assertions.assertEquals(mapAnalysis.analyze(), analysis.analyze());
+        }
+    }
+
+    @Test
+    public void testSparseSignAnalysis() {
+        for (Block program : programs) {
+            for (var cfg : List.of(new AtomicCFGBuilder().buildCFG(program), new BasicBlockCFGBuilder().buildCFG(program))) {
+                var ssa = new SSABuilder().buildSSA(cfg);
+
+                // every SSA name is defined at most once
+                var defined = new HashSet<String>();
+                for (var phis : ssa.phis.values()) {
+                    for (Phi phi : phis) {
+                        Assertions.assertTrue(defined.add(phi.name));
+                    }
+                }
+                for (var block : ssa.cfg.blockMap.values()) {
+                    for (var statement : block.statements) {
+                        if (statement instanceof Assign assign) {
+                            Assertions.assertTrue(defined.add(assign.var));
+                        }
+                    }
+                }
+
+                var dense = new SignAnalysis(cfg).analyze();
+                var sparse = new SparseSignAnalysis(ssa);
+                var values = sparse.analyze();
+                for (int blockId : ssa.cfg.blockMap.keySet()) {
+                    var store = dense.get(blockId);
+                    Assertions.assertEquals(store, sparse.storeAt(values, blockId, store.keySet()));
+                }
+            }
+        }
+
+        // program4 needs phis for x at the loop head
+        var ssa = new SSABuilder().buildSSA(new AtomicCFGBuilder().buildCFG(program4));
+        Assertions.assertTrue(ssa.phis.values().stream().flatMap(List::stream).anyMatch(phi -> phi.var.equals("x")));
+    }
+
+    @Test
+    public void testParallelSolver() {
+        for (Block program : programs) {
+            for (var analysisBuilder : analyses) {
+                for (var cfg : List.of(new AtomicCFGBuilder().buildCFG(program), new BasicBlockCFGBuilder().buildCFG(program))) {
+                    var sequential = analysisBuilder.apply(cfg).analyze();
+                    var pool = new ForkJoinPool(4);
+                    try {
+                        Assertions.assertEquals(sequential, analysisBuilder.apply(cfg).analyzeParallel(pool));
+
+                    } finally {
+                        pool.shutdown();
+                    }
+                    Assertions.assertEquals(sequential, analysisBuilder.apply(cfg).analyze(SolverStrategy.PARALLEL));
+                }
+            }
+        }
+
+        // generated programs have enough independent components for workers to evaluate blocks at the same time
+        var largePool = new ForkJoinPool(8);
+        try {
+            for (long seed = 0; seed < 10; seed++) {
+                var cfg = new BasicBlockCFGBuilder().buildCFG(ProgramGenerator.generate(seed, 3000));
+                Assertions.assertEquals(new AvailableExpressionsAnalysis(cfg).analyze(), new AvailableExpressionsAnalysis(cfg).analyzeParallel(largePool));
+                Assertions.assertEquals(new VeryBusyExpressionsAnalysis(cfg).analyze(), new VeryBusyExpressionsAnalysis(cfg).analyzeParallel(largePool));
+            }
+
+        } finally {
+            largePool.shutdown();
+        }
+
+        // the two loops of program6 are nested, so they form a single component; every other block is its own
+        var cfg = new AtomicCFGBuilder().buildCFG(program6);
+        var analysis = new LivenessAnalysis(cfg);
+        analysis.analyze(SolverStrategy.PARALLEL);
+        var scc = analysis.solver.components;
+        int nontrivial = 0;
+        for (int c = 0; c < scc.numComponents; c++) {
+            if (scc.memberOffsets[c + 1] - scc.memberOffsets[c] > 1) {
+                nontrivial += 1;
+            }
+            for (int i = scc.successorOffsets[c]; i < scc.successorOffsets[c + 1]; i++) {
+                Assertions.assertTrue(scc.successors[i] > c);
+            }
+        }
+        Assertions.assertEquals(1, nontrivial);
+    }
+
+    @Test
+    public void testCorpusAnalyzer() {
+        var named = new LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>>();
+        named.put("liveness", LivenessAnalysis::new);
+        named.put("sign", SignAnalysis::new);
+        named.put("failing", cfg -> {
+            if (cfg.blockMap.size() > 10) {
+                throw new RuntimeException("too large");
+            }
+            return new ReachingDefinitionsAnalysis(cfg);
+        });
+
+        int corpusSize = 120;
+        int maxInFlight = 3;
+        var pulled = new AtomicInteger();
+        var corpus = IntStream.range(0, corpusSize)
+            .mapToObj(i -> programs.get(i % programs.size()))
+            .peek(program -> pulled.incrementAndGet());
+
+        var seen = new HashSet<Integer>();
+        var delivered = new int[1];
+        var report = new CorpusAnalyzer(named, maxInFlight).run(corpus, result -> {
+            // programs are only pulled from the corpus when there is room for them
+            Assertions.assertTrue(pulled.get() <= delivered[0] + maxInFlight);
+            delivered[0] += 1;
+            Assertions.assertTrue(seen.add(result.index));
+
+            var program = programs.get(result.index % programs.size());
+            Assertions.assertSame(program, result.program);
+            var expected = new LivenessAnalysis(new AtomicCFGBuilder().buildCFG(program)).analyze();
+            Assertions.assertEquals(expected, result.solutions.get("liveness"));
+            Assertions.assertEquals(result.cfg.blockMap.size() > 10, result.error != null);
+        });
+
+        Assertions.assertEquals(corpusSize, report.programs);
+        Assertions.assertEquals(corpusSize, seen.size());
+        Assertions.assertTrue(report.failures > 0 && report.failures < corpusSize);
+    }
+
+    @Test
+    public void testCorpusAnalyzerErrors() {
+        // errors of a program, not only exceptions, are reported in its result and the run goes on
+        var named = new LinkedHashMap<String, Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>>();
+        named.put("liveness", LivenessAnalysis::new);
+        named.put("erroring", cfg -> {
+            throw new AssertionError("broken analysis");
+        });
+        var errors = new ArrayList<Throwable>();
+        var report = new CorpusAnalyzer(named, 2).run(programs.stream(), result -> errors.add(result.error));
+        Assertions.assertEquals(programs.size(), report.failures);
+        Assertions.assertTrue(errors.stream().allMatch(error -> error instanceof AssertionError));
+
+        // errors of the sink stop the run
+        var failure = Assertions.assertThrows(RuntimeException.class, () ->
+            new CorpusAnalyzer(named, 2).run(programs.stream(), result -> {
+                throw new AssertionError("broken sink");
+            })
+        );
+        Assertions.assertEquals("corpus sink failed", failure.getMessage());
+        Assertions.assertEquals("broken sink", failure.getCause().getMessage());
+
+        // a stack overflow is reported in the result, while other errors of the JVM stop the run
+        named.put("erroring", cfg -> {
+            throw new StackOverflowError();
+        });
+        errors.clear();
+        report = new CorpusAnalyzer(named, 2).run(programs.stream(), result -> errors.add(result.error));
+        Assertions.assertEquals(programs.size(), report.failures);
+        Assertions.assertTrue(errors.stream().allMatch(error -> error instanceof StackOverflowError));
+
+        named.put("erroring", cfg -> {
+            throw new InternalError("broken jvm");
+        });
+        Assertions.assertThrows(InternalError.class, () -> new CorpusAnalyzer(named, 2).run(programs.stream(), result -> {}));
+    }
+
+    @Test
+    public void testFusedAnalysis() {
+        for (Block program : programs) {
+            for (var cfg : List.of(new AtomicCFGBuilder().buildCFG(program), new BasicBlockCFGBuilder().buildCFG(program))) {
+                for (var direction : DataFlowDirection.values()) {
+                    var parts = new ArrayList<DataFlowAnalysis<?, ?>>();
+                    var builders = new ArrayList<Function<ControlFlowGraph, DataFlowAnalysis<?, ?>>>();
+                    for (var analysisBuilder : analyses) {
+                        var analysis = analysisBuilder.apply(cfg);
+                        if (analysis.direction == direction) {
+                            parts.add(analysis);
+                            builders.add(analysisBuilder);
+                        }
+                    }
+
+                    var solutions = new FusedAnalysis(parts).analyzeAll();
+                    for (int i = 0; i < parts.size(); i++) {
+                        // the fused analyses never build solvers of their own
+                        Assertions.assertNull(parts.get(i).solver);
+                        Assertions.assertEquals(builders.get(i).apply(cfg).analyze(), solutions.get(i));
+                    }
+                }
+            }
+        }
+
+        var cfg = new AtomicCFGBuilder().buildCFG(program3);
+        var liveness = new LivenessAnalysis(cfg);
+        var fused = new FusedAnalysis(List.of(liveness, new VeryBusyExpressionsAnalysis(cfg)));
+        Assertions.assertEquals(new LivenessAnalysis(cfg).analyze(), fused.solutionOf(liveness, fused.analyze()));
+        Assertions.assertThrows(RuntimeException.class, () -> new FusedAnalysis(List.of(liveness, new SignAnalysis(cfg))));
+    }
+
+    /** return the ID of the first block (by ID) whose first statement assigns {@param var}. */
+    private static int assigningBlock(ControlFlowGraph cfg, String var) {
+        return cfg.blockMap.keySet().stream().sorted()
+            .filter(id -> !cfg.blockMap.get(id).statements.isEmpty()
+                && cfg.blockMap.get(id).statements.getFirst() instanceof Assign assign && assign.var.equals(var))
+            .findFirst().orElseThrow();
+    }
+
+    @Test
+    public void testIncrementalAnalysis() {
+        for (var analysisBuilder : analyses) {
+            var cfg = new AtomicCFGBuilder().buildCFG(program4);
+            var incremental = new IncrementalAnalysis<>(cfg, analysisBuilder::apply);
+            Assertions.assertEquals(analysisBuilder.apply(cfg).analyze(), incremental.analyze());
+
+            // replace z := x + 4 by z := x + 1, whose expression and variables already occur in the program
+            cfg.replaceStatement(assigningBlock(cfg, "z"), 0, new Assign("z", new Add(new Var("x"), new Literal(1))));
+            Assertions.assertEquals(analysisBuilder.apply(cfg).analyze(), incremental.analyze());
+
+            // insert a block y := x + 2 before the output; the solver and the solution are updated in place, unless
+            // the analysis had to be created anew
+            var solver = incremental.analysis.solver;
+            var solution = incremental.solution;
+            int solvesBefore = incremental.fullSolves;
+            int outputBlock = cfg.blockMap.keySet().stream()
+                .filter(id -> !cfg.blockMap.get(id).statements.isEmpty() && cfg.blockMap.get(id).statements.getFirst() instanceof Output)
+                .findFirst().orElseThrow();
+            var added = cfg.addBlock(new LinkedList<>(List.of(new Assign("y", new Add(new Var("x"), new Literal(2))))), new UnconditionalJump(outputBlock));
+            for (int pred : cfg.predecessors().get(outputBlock)) {
+                if (pred != added.id) {
+                    cfg.retarget(pred, Map.of(outputBlock, added.id));
+                }
+            }
+            Assertions.assertEquals(analysisBuilder.apply(cfg).analyze(), incremental.analyze());
+            if (incremental.fullSolves == solvesBefore) {
+                Assertions.assertSame(solver, incremental.analysis.solver);
+                Assertions.assertSame(solution, incremental.solution);
+            }
+
+            // a new variable changes the universe of every analysis
+            int fullSolves = incremental.fullSolves;
+            cfg.replaceStatement(added.id, 0, new Assign("w", new Multiply(new Var("x"), new Var("w"))));
+            Assertions.assertEquals(analysisBuilder.apply(cfg).analyze(), incremental.analyze());
+            Assertions.assertEquals(fullSolves + 1, incremental.fullSolves);
+        }
+
+        // an edit at the end of a long straight-line program only re-solves its tail
+        var statements = new ArrayList<Statement>();
+        for (int i = 0; i < 200; i++) {
+            statements.add(new Assign("x" + (i % 10), new Add(new Var("x" + ((i + 1) % 10)), new Literal(i % 3 - 1))));
+        }
+        var cfg = new AtomicCFGBuilder().buildCFG(new Block(statements));
+        var incremental = new IncrementalAnalysis<>(cfg, SignAnalysis::new);
+        incremental.analyze();
+        int fullIterations = incremental.lastIterations;
+
+        cfg.replaceStatement(assigningBlock(cfg, "x9"), 0, new Assign("x9", new Literal(-1)));
+        Assertions.assertEquals(new SignAnalysis(cfg).analyze(), incremental.analyze());
+        Assertions.assertEquals(1, incremental.fullSolves);
+        Assertions.assertTrue(incremental.lastIterations < fullIterations / 4);
+    }
+
+    @Test
+    public void testIntervalAnalysis() {
+        // widening stops at loop heads, so every program terminates within a few passes per loop
+        for (Block program : programs) {
+            for (var cfg : List.of(new AtomicCFGBuilder().buildCFG(program), new BasicBlockCFGBuilder().buildCFG(program))) {
+                var analysis = new IntervalAnalysis(cfg);
+                analysis.analyze();
+                Assertions.assertTrue(analysis.solver.iterations <= 8 * cfg.blockMap.size());
+
+                // only the guards of loops are widened
+                for (int dfVar = 0; dfVar < analysis.varBlocks.length; dfVar++) {
+                    if (analysis.solver.wideningPoints[dfVar]) {
+                        Assertions.assertTrue(cfg.blockMap.get(analysis.varBlocks[dfVar]).jump instanceof ConditionalJump);
+                    }
+                }
+            }
+        }
+
+        // i := 0; while (i) { i := i + 1 }: i is unbounded at the loop head
+        var counter = new Block(new ArrayList<>(List.of(
+            new Assign("i", new Literal(0)),
+            new While(new Var("i"), new Block(new ArrayList<>(List.of(new Assign("i", new Add(new Var("i"), new Literal(1)))))))
+        )));
+        var cfg = new AtomicCFGBuilder().buildCFG(counter);
+        var solution = new IntervalAnalysis(cfg).analyze();
+        int guard = loopGuard(cfg);
+        Assertions.assertEquals(Interval.of(0, Long.MAX_VALUE), solution.get(guard).get("i"));
+
+        // incremental updates widen too: after i := 1, i is in [1, +inf] at the loop head
+        var incremental = new IncrementalAnalysis<>(cfg, IntervalAnalysis::new);
+        incremental.analyze();
+        int init = cfg.blockMap.values().stream()
+            .filter(block -> !block.statements.isEmpty() && block.statements.getFirst() instanceof Assign assign && assign.rhs instanceof Literal)
+            .findFirst().orElseThrow().id;
+        cfg.replaceStatement(init, 0, new Assign("i", new Literal(1)));
+        var updated = incremental.analyze();
+        Assertions.assertEquals(1, incremental.fullSolves);
+        Assertions.assertEquals(new IntervalAnalysis(cfg).analyze(), updated);
+        Assertions.assertEquals(Interval.of(1, Long.MAX_VALUE), updated.get(guard).get("i"));
+
+        // the parallel entry point solves with widening as well
+        Assertions.assertEquals(updated, new IntervalAnalysis(cfg).analyzeParallel(ForkJoinPool.commonPool()));
+
+        // fusing intervals with a finite lattice widens the interval component
+        var intervals = new IntervalAnalysis(cfg);
+        var signs = new SignAnalysis(cfg);
+        var fused = new FusedAnalysis(List.of(intervals, signs));
+        var fusedSolution = fused.analyze();
+        Assertions.assertEquals(updated, fused.solutionOf(intervals, fusedSolution));
+        Assertions.assertEquals(new SignAnalysis(cfg).analyze(), fused.solutionOf(signs, fusedSolution));
+
+        // x := 0; while (y) { x := 5 }: widening jumps to [0, +inf], narrowing recovers [0, 5]
+        var reset = new Block(new ArrayList<>(List.of(
+            new Assign("x", new Literal(0)),
+            new While(new Var("y"), new Block(new ArrayList<>(List.of(new Assign("x", new Literal(5))))))
+        )));
+        cfg = new AtomicCFGBuilder().buildCFG(reset);
+        solution = new IntervalAnalysis(cfg).analyze();
+        Assertions.assertEquals(Interval.of(0, 5), solution.get(loopGuard(cfg)).get("x"));
+
+        Assertions.assertEquals(Interval.of(-8, 12), Interval.of(-2, 3).multiply(Interval.of(-1, 4)));
+        Assertions.assertEquals(Interval.TOP, Interval.of(1, Long.MAX_VALUE).multiply(Interval.of(Long.MIN_VALUE, 1)));
+        Assertions.assertEquals(Interval.of(Long.MAX_VALUE - 1, Long.MAX_VALUE), Interval.constant(Long.MAX_VALUE - 1).add(Interval.of(0, 5)));
+    }
+
+    @Test
+    public void testSolverStats() {
+        for (Block program : programs) {
+            var cfg = new AtomicCFGBuilder().buildCFG(program);
+            var analysis = new SignAnalysis(cfg);
+            var solution = analysis.analyze();
+            Assertions.assertNull(analysis.stats());
+
+            analysis.collectStats = true;
+            for (var strategy : SolverStrategy.values()) {
+                Assertions.assertEquals(solution, analysis.analyze(strategy));
+
+                var stats = analysis.stats();
+                Assertions.assertEquals(analysis.solver.iterations, stats.iterations());
+                Assertions.assertTrue(stats.changes <= stats.iterations());
+                if (strategy != SolverStrategy.FIFO) {
+                    // only the FIFO worklist may hold a variable more than once
+                    Assertions.assertTrue(stats.peakWorklist <= cfg.blockMap.size());
+                }
+
+                // every block is evaluated at least once
+                var visits = analysis.blockVisits();
+                Assertions.assertEquals(cfg.blockMap.keySet(), visits.keySet());
+                Assertions.assertTrue(visits.values().stream().allMatch(count -> count > 0));
+                Assertions.assertEquals(stats.iterations(), visits.values().stream().mapToLong(Integer::longValue).sum());
+            }
+
+            analysis.collectStats = false;
+            analysis.analyze();
+            Assertions.assertNull(analysis.stats());
+        }
+    }
+
+    @Test
+    public void testProgramGenerator() {
+        var programs = new ArrayList<Block>();
+        for (int i = 0; i < 2; i++) {
+            var generator = new ProgramGenerator(7);
+            generator.statements = 500;
+            generator.maxNesting = 2;
+            programs.add(generator.generate());
+        }
+
+        // the size is exact, nesting is bounded and the same seed gives the same program
+        Assertions.assertEquals(500, countStatements(programs.get(0), 2));
+        Assertions.assertEquals(
+            new AtomicCFGBuilder().buildCFG(programs.get(0)).toString(),
+            new AtomicCFGBuilder().buildCFG(programs.get(1)).toString()
+        );
+    }
+
+    @Test
+    public void testQuery() {
+        var programs = new ArrayList<>(DataFlowAnalysisTest.programs);
+        programs.add(ProgramGenerator.generate(5, 300));
+        for (Block program : programs) {
+            for (var cfg : List.of(new AtomicCFGBuilder().buildCFG(program), new BasicBlockCFGBuilder().buildCFG(program))) {
+                for (var analysisBuilder : analyses) {
+                    var solution = analysisBuilder.apply(cfg).analyze();
+                    var analysis = analysisBuilder.apply(cfg);
+                    var blockIds = new ArrayList<>(cfg.blockMap.keySet());
+                    Collections.reverse(blockIds);
+                    for (int blockId : blockIds) {
+                        Assertions.assertEquals(solution.get(blockId), analysis.query(blockId));
+                    }
+                }
+            }
+        }
+
+        // a query near the boundary of a large CFG only solves the few blocks it depends on
+        var cfg = new AtomicCFGBuilder().buildCFG(ProgramGenerator.generate(5, 5000));
+        var sign = new SignAnalysis(cfg);
+        int first = cfg.blockMap.get(cfg.entryBlock).jump.possibleTargets().iterator().next();
+        Assertions.assertEquals(new SignAnalysis(cfg).analyze().get(first), sign.query(first));
+        Assertions.assertTrue(sign.solver.iterations < 100);
+
+        var liveness = new LivenessAnalysis(cfg);
+        int last = cfg.predecessors().get(cfg.exitBlock).iterator().next();
+        Assertions.assertEquals(new LivenessAnalysis(cfg).analyze().get(last), liveness.query(last));
+        Assertions.assertTrue(liveness.solver.iterations < 100);
+
+        // blocks solved by earlier queries are not solved again
+        sign.query(cfg.exitBlock);
+        Assertions.assertTrue(sign.solver.iterations >= cfg.blockMap.size() - 100);
+        sign.solver.iterations = 0;
+        for (int blockId : cfg.blockMap.keySet()) {
+            sign.query(blockId);
+        }
+        Assertions.assertEquals(0, sign.solver.iterations);
+
+        // intervals are widened at loop heads, but loop-free programs get the same facts
+        var straight = new AtomicCFGBuilder().buildCFG(program1);
+        var intervals = new IntervalAnalysis(straight);
+        var expected = new IntervalAnalysis(straight).analyze();
+        Assertions.assertEquals(expected.get(straight.exitBlock), intervals.query(straight.exitBlock));
+    }
+
+    /** count the statements of {@param block}, checking that loops and conditionals are nested at most {@param nesting} deep. */
+    private static int countStatements(Block block, int nesting) {
+        int res = 0;
+        for (var statement : block.statements) {
+            res += 1;
+            if (statement instanceof While loop) {
+                Assertions.assertTrue(nesting > 0);
+                res += countStatements(loop.body, nesting - 1);
+
+            } else if (statement instanceof Conditional conditional) {
+                Assertions.assertTrue(nesting > 0);
+                res += countStatements(conditional.thenBranch, nesting - 1);
+                res += countStatements(conditional.elseBranch, nesting - 1);
+            }
+        }
+        return res;
+    }
+
+    private static int loopGuard(ControlFlowGraph cfg) {
+        for (var block : cfg.blockMap.values()) {
+            if (block.jump instanceof ConditionalJump) {
+                return block.id;
+            }
+        }
+        throw new RuntimeException("no loop guard");
+    }
+}
@@ -0,0 +1,117 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+public class ParserTest {
+    static Block parse(String source, int bufferSize) {
+        return new Parser(new Lexer(new StringReader(source), bufferSize)).parseProgram();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        // programs print in the concrete syntax, so printing and parsing gives the same program
+        var programs = new ArrayList<>(DataFlowAnalysisTest.programs);
+        programs.add(ProgramGenerator.generate(3, 2000));
+        for (Block program : programs) {
+            var source = program.toString();
+            for (int bufferSize : new int[] {1, 7, 1 << 16}) {
+                var parsed = parse(source, bufferSize);
+                Assertions.assertEquals(source, parsed.toString());
+                Assertions.assertEquals(
+                    new AtomicCFGBuilder().buildCFG(program).toString(),
+                    new AtomicCFGBuilder().buildCFG(parsed).toString()
+                );
+            }
+        }
+    }
+
+    @Test
+    public void testSyntax() {
+        var program = Parser.parse(String.join("\n",
+            "# products bind tighter than sums, and both associate to the left",
+            "x := 1 + 2 * y + -3;",
+            "if (x) { output(x * (y + input)) }",
+            "while (x) { then_x := x.1; }"
+        ));
+
+        Assertions.assertEquals(3, program.statements.size());
+        Assertions.assertEquals("x := ((1 + (2 * y)) + -3)", program.statements.get(0).toString());
+
+        var conditional = (Conditional) program.statements.get(1);
+        var output = (Output) conditional.thenBranch.statements.get(0);
+        Assertions.assertEquals("output((x * (y + input)))", output.toString());
+        Assertions.assertTrue(conditional.elseBranch.statements.isEmpty());
+
+        var loop = (While) program.statements.get(2);
+        Assertions.assertEquals("then_x := x.1", loop.body.statements.get(0).toString());
+
+        // occurrences of a variable share one expression
+        Assertions.assertSame(conditional.guard, ((Multiply) output.expr).lhs);
+    }
+
+    @Test
+    public void testErrors() {
+        var cases = new String[][] {
+            {"x := 1\ny := 2", "2:1: expected ; but found y"},
+            {"x := (1 + 2", "1:12: expected ) but found end of input"},
+            {"while x { }", "1:7: expected ( but found x"},
+            {"x = 1", "1:3: unexpected character '='"},
+            {"x := 1 - 2", "1:8: expected a digit after -"},
+            {"x := 99999999999", "1:6: integer literal out of range"},
+            {"if := 1", "1:4: expected ( but found :="},
+            {"x := 1 $", "1:8: unexpected character '$'"},
+            {"x := \u0663\u0661;", "1:6: unexpected character '\u0663'"},
+            {"x := " + "(".repeat(20000) + "1" + ")".repeat(20000), "1:1006: nesting deeper than 1000"},
+            {"while (1) { ".repeat(1001), "1:12011: nesting deeper than 1000"}
+        };
+        for (var c : cases) {
+            var e = Assertions.assertThrows(RuntimeException.class, () -> Parser.parse(c[0]));
+            Assertions.assertEquals(c[1], e.getMessage());
+        }
+
+        // the smallest and largest literals are in range
+        Assertions.assertEquals("x := -2147483648", Parser.parse("x := -2147483648").toString());
+        Assertions.assertEquals("x := 2147483647", Parser.parse("x := 2147483647").toString());
+
+        // the deepest nesting accepted parses
+        var nested = "(".repeat(Parser.MAX_DEPTH) + "1" + ")".repeat(Parser.MAX_DEPTH);
+        Assertions.assertEquals("x := 1", Parser.parse("x := " + nested).toString());
+    }
+
+    @Test
+    public void testMain() throws IOException {
+        var file = Files.createTempFile("program", ".while");
+        try {
+            Files.writeString(file, DataFlowAnalysisTest.program4.toString());
+
+            var out = new ByteArrayOutputStream();
+            var err = new ByteArrayOutputStream();
+            int status = Main.run(
+                new String[] {"--cfg", "atomic", "--analyses", "sign,liveness", "--print", file.toString()},
+                new PrintStream(out),
+                new PrintStream(err)
+            );
+
+            Assertions.assertEquals(0, status);
+            var lines = out.toString().lines().toList();
+            Assertions.assertTrue(lines.get(0).startsWith(file + ": parse "));
+            Assertions.assertTrue(lines.stream().anyMatch(line -> line.startsWith("  sign: solve ")));
+            Assertions.assertTrue(lines.stream().anyMatch(line -> line.startsWith("  liveness: solve ")));
+
+            Assertions.assertEquals(2, Main.run(new String[] {"--analyses", "nope", file.toString()}, new PrintStream(out), new PrintStream(err)));
+            Files.writeString(file, "x := ");
+            Assertions.assertEquals(1, Main.run(new String[] {file.toString()}, new PrintStream(out), new PrintStream(err)));
+
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/** Scaling benchmarks; run with {@code ./gradlew benchmark}. */
+@Tag("benchmark")
+public class SolverBenchmarkTest {
+    /** program whose control flow is a complete binary tree of conditionals of height {@param depth},
+     *  with a loop over {@param width} variables at every leaf, so the condensation DAG is wide. */
+    static Block wideProgram(int depth, int width) {
+        return new Block(new ArrayList<>(List.of(wideStatement(depth, width, new int[1]))));
+    }
+
+    private static Statement wideStatement(int depth, int width, int[] counter) {
+        if (depth == 0) {
+            var body = new ArrayList<Statement>();
+            for (int i = 0; i < width; i++) {
+                var var = "v" + i;
+                body.add(new Assign(var, new Add(new Var("v" + ((i + 1) % width)), new Literal(counter[0]++))));
+            }
+            body.add(new Output(new Var("v0")));
+            return new While(new Var("v0"), new Block(body));
+        }
+
+        var guard = new Add(new Var("v" + (depth % width)), new Literal(depth));
+        return new Conditional(
+            guard,
+            new Block(new ArrayList<>(List.of(wideStatement(depth - 1, width, counter)))),
+            new Block(new ArrayList<>(List.of(wideStatement(depth - 1, width, counter))))
+        );
+    }
+
+    @Test
+    public void benchmarkParallelSolver() {
+        var cfg = new BasicBlockCFGBuilder().buildCFG(wideProgram(8, 16));
+        var expected = new ReachingDefinitionsAnalysis(cfg).analyze();
+
+        long start = System.nanoTime();
+        new ReachingDefinitionsAnalysis(cfg).analyze();
+        System.out.printf("sequential: %d blocks, %.1f ms%n", cfg.blockMap.size(), (System.nanoTime() - start) / 1e6);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            var pool = new ForkJoinPool(threads);
+            try {
+                // warm up, then measure
+                new ReachingDefinitionsAnalysis(cfg).analyzeParallel(pool);
+                start = System.nanoTime();
+                var solution = new ReachingDefinitionsAnalysis(cfg).analyzeParallel(pool);
+                System.out.printf("parallel, %d threads: %.1f ms%n", threads, (System.nanoTime() - start) / 1e6);
+                Assertions.assertEquals(expected, solution);
+
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkCfgCodec() throws IOException {
+        var source = ProgramGenerator.generate(13, 200_000).toString();
+        var file = Files.createTempFile("cfg", ".bin");
+        try {
+            // warm up, then measure
+            for (int run = 0; run < 2; run++) {
+                long start = System.nanoTime();
+                var program = Parser.parse(source);
+                long parsed = System.nanoTime();
+                var cfg = new AtomicCFGBuilder().buildCFG(program);
+                long built = System.nanoTime();
+
+                CfgCodec.write(cfg, file);
+                long written = System.nanoTime();
+                var mapped = CfgCodec.open(file);
+                long opened = System.nanoTime();
+                mapped.block(cfg.exitBlock);
+                long decodedBlock = System.nanoTime();
+                var loaded = mapped.toControlFlowGraph();
+                long decoded = System.nanoTime();
+
+                Assertions.assertEquals(cfg.blockMap.size(), loaded.blockMap.size());
+                System.out.printf(
+                    "%d blocks, %d KB source, %d KB encoded: parse %.1f ms + build %.1f ms; write %.1f ms; " +
+                        "open %.3f ms, one block %.3f ms, all blocks %.1f ms%n",
+                    cfg.blockMap.size(),
+                    source.length() / 1024,
+                    Files.size(file) / 1024,
+                    (parsed - start) / 1e6,
+                    (built - parsed) / 1e6,
+                    (written - built) / 1e6,
+                    (opened - written) / 1e6,
+                    (decodedBlock - opened) / 1e6,
+                    (decoded - decodedBlock) / 1e6
+                );
+            }
+
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void benchmarkAnalysisCache() throws IOException {
+        var cfg = new AtomicCFGBuilder().buildCFG(ProgramGenerator.generate(17, 200_000));
+        var smallCfg = new AtomicCFGBuilder().buildCFG(ProgramGenerator.generate(17, 20_000));
+        var directory = Files.createTempDirectory("cache");
+        try {
+            benchmarkAnalysisCache("liveness", cfg, LivenessAnalysis::new, directory);
+            benchmarkAnalysisCache("sign", cfg, SignAnalysis::new, directory);
+            benchmarkAnalysisCache("interval", cfg, IntervalAnalysis::new, directory);
+            benchmarkAnalysisCache("available-expressions (20k)", smallCfg, AvailableExpressionsAnalysis::new, directory);
+
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (var file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static <T> void benchmarkAnalysisCache(String name, ControlFlowGraph cfg,
+                                                   Function<ControlFlowGraph, DataFlowAnalysis<T, ?>> analysis,
+                                                   Path directory) throws IOException {
+        // warm up, then measure
+        for (int run = 0; run < 2; run++) {
+            try (var files = Files.list(directory)) {
+                for (var file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            var cache = new AnalysisCache(1L << 30, directory, 1L << 30);
+
+            // analyses are created outside of the measurements, which only cover the solve or the cache
+            var analyses = new ArrayList<DataFlowAnalysis<T, ?>>();
+            for (int i = 0; i < 5; i++) {
+                analyses.add(analysis.apply(cfg));
+            }
+
+            long start = System.nanoTime();
+            var expected = analyses.get(0).analyze();
+            long solved = System.nanoTime();
+            var key = AnalysisCache.key(analyses.get(1), ElementCodec.forLattice(analyses.get(1).lattice));
+            long hashed = System.nanoTime();
+            cache.analyze(analyses.get(2));
+            long missed = System.nanoTime();
+            var fromMemory = cache.analyze(analyses.get(3));
+            long memoryHit = System.nanoTime();
+            var diskCache = new AnalysisCache(1L << 30, directory, 1L << 30);
+            long opened = System.nanoTime();
+            var fromDisk = diskCache.analyze(analyses.get(4));
+            long diskHit = System.nanoTime();
+
+            Assertions.assertEquals(64, key.length());
+            Assertions.assertEquals(expected, fromMemory);
+            Assertions.assertEquals(expected, fromDisk);
+            Assertions.assertEquals(1, diskCache.diskHits);
+            System.out.printf("%s, %d blocks: solve %.1f ms, key %.1f ms, miss %.1f ms, memory hit %.1f ms, disk hit %.1f ms%n",
+                name, cfg.blockMap.size(), (solved - start) / 1e6, (hashed - solved) / 1e6, (missed - hashed) / 1e6,
+                (memoryHit - missed) / 1e6, (diskHit - opened) / 1e6);
+        }
+    }
+
+    @Test
+    public void benchmarkQuery() {
+        var cfg = new AtomicCFGBuilder().buildCFG(ProgramGenerator.generate(19, 200_000));
+        benchmarkQuery("sign", cfg, SignAnalysis::new, cfg.reversePostorder(), cfg.exitBlock);
+        benchmarkQuery("liveness", cfg, LivenessAnalysis::new, cfg.reverseGraphReversePostorder(), cfg.entryBlock);
+    }
+
+    /** compare full solves with queries of blocks at increasing depths of {@param order}, the order in which the
+     *  analysis propagates, so that earlier blocks tend to have smaller slices, and of {@param last}, which depends
+     *  on every block. The dependency graph is built before each query and timed separately. */
+    private static <T> void benchmarkQuery(String name, ControlFlowGraph cfg,
+                                           Function<ControlFlowGraph, DataFlowAnalysis<T, ?>> analysis,
+                                           List<Integer> order, int last) {
+        // warm up, then measure
+        for (int run = 0; run < 2; run++) {
+            var full = analysis.apply(cfg);
+            long start = System.nanoTime();
+            var solution = full.analyze();
+            long solved = System.nanoTime();
+            System.out.printf("%s, %d blocks: solve %.1f ms%n", name, cfg.blockMap.size(), (solved - start) / 1e6);
+
+            for (double depth : new double[] {0.001, 0.01, 0.1, -1}) {
+                int blockId = depth < 0 ? last : order.get((int) (depth * (order.size() - 1)));
+                var queried = analysis.apply(cfg);
+                start = System.nanoTime();
+                queried.solver().buildAdjacency();
+                long built = System.nanoTime();
+                var fact = queried.query(blockId);
+                long first = System.nanoTime();
+                queried.query(blockId);
+                long second = System.nanoTime();
+
+                Assertions.assertEquals(solution.get(blockId), fact);
+                System.out.printf("  query %s: %d blocks evaluated, dependencies %.1f ms, query %.2f ms, then %.4f ms%n",
+                    depth < 0 ? "of the last block" : String.format("at depth %.3f", depth), queried.solver.iterations,
+                    (built - start) / 1e6, (first - built) / 1e6, (second - first) / 1e6);
+            }
+        }
+    }
+}